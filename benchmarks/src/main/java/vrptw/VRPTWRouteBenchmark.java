@@ -0,0 +1,97 @@
+package vrptw;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VRPTWRouteBenchmark {
+
+	@Param({"C101", "R101", "RC101"})
+	String instance;
+
+	VRPTWRoute template;
+	VRPTWRoute without;
+	VRPTWRoute route;
+	VRPTWCustomer customer;
+	int customer_idx;
+	VRPTWCustomer outsider;
+	double push_forward_time;
+
+	@Setup
+	public void setup() {
+		VRPTWProblem problem = new VRPTWProblem(instance, 200);
+		VRPTWSolution solution = new VRPTWSolver().generateFirstSolution(problem);
+
+		VRPTWRoute longest = solution.routes.get(0);
+		for (VRPTWRoute r : solution.routes)
+			if (r.size() > longest.size())
+				longest = r;
+		template = new VRPTWRoute(longest);
+
+		customer_idx = template.size() / 2;
+		customer = template.getCustomer(customer_idx);
+		without = new VRPTWRoute(template);
+		without.removeCustomer(customer);
+		route = new VRPTWRoute(template);
+
+		int candidates = -1;
+		for (VRPTWRoute r : solution.routes) {
+			if (r == longest)
+				continue;
+			for (int i=1; i<r.size()-1; i++) {
+				int n = template.candidate_insertions(r.getCustomer(i)).size();
+				if (n > candidates) {
+					outsider = r.getCustomer(i);
+					candidates = n;
+				}
+			}
+		}
+		push_forward_time = template._slack[customer_idx] / 2;
+	}
+
+	@Benchmark
+	public VRPTWRoute copyFrom() {
+		route.copyFrom(template);
+		return route;
+	}
+
+	@Benchmark
+	public boolean addCustomer() {
+		route.copyFrom(without);
+		return route.addCustomer(customer, customer_idx-1, customer_idx);
+	}
+
+	@Benchmark
+	public VRPTWRoute removeCustomer() {
+		route.copyFrom(template);
+		route.removeCustomer(customer);
+		return route;
+	}
+
+	@Benchmark
+	public LinkedList<VRPTWCandidateCustomerInsertion> candidate_insertions() {
+		return template.candidate_insertions(outsider);
+	}
+
+	@Benchmark
+	public boolean push_forward_keep_feasibility() {
+		return template.push_forward_keep_feasibility(customer_idx, push_forward_time);
+	}
+}
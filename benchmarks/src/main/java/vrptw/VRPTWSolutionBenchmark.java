@@ -0,0 +1,45 @@
+package vrptw;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VRPTWSolutionBenchmark {
+
+	@Param({"C101", "R101", "RC101"})
+	String instance;
+
+	VRPTWSolution solution;
+
+	@Setup
+	public void setup() {
+		VRPTWProblem problem = new VRPTWProblem(instance, 200);
+		solution = new VRPTWSolver().generateFirstSolution(problem);
+	}
+
+	@Benchmark
+	public VRPTWSolution cloneSolution() {
+		return solution.clone();
+	}
+
+	@Benchmark
+	public double cost() {
+		return solution.cost();
+	}
+}
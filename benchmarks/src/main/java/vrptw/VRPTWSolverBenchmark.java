@@ -0,0 +1,55 @@
+package vrptw;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VRPTWSolverBenchmark {
+
+	@Param({"C101", "R101", "RC101"})
+	String instance;
+
+	VRPTWProblem problem;
+	VRPTWSolver solver;
+	VRPTWSolverThread thread;
+	VRPTWSolution solution;
+
+	@Setup
+	public void setup() {
+		problem = new VRPTWProblem(instance, 200);
+		solver = new VRPTWSolver();
+		thread = new VRPTWSolverThread(0, problem, solver.generateFirstSolution(problem), new SplittableRandom(42), new VRPTWSolution[1]);
+		solution = thread._best_local_solution;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public VRPTWSolution generateFirstSolution() {
+		return solver.generateFirstSolution(problem);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean annealing_step() {
+		solution.beginMove();
+		boolean moved = thread.annealing_step(solution);
+		solution.rollbackMove();
+		return moved;
+	}
+}
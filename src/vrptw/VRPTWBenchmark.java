@@ -12,54 +12,61 @@ public class VRPTWBenchmark {
 	public static void main(String[] args) throws InterruptedException {
 
 		
-		VRPTWProblem c1_problems[] = {
-									new VRPTWProblem("C101", 200), new VRPTWProblem("C102", 200),
-									new VRPTWProblem("C103", 200), new VRPTWProblem("C104", 200),
-									new VRPTWProblem("C105", 200), new VRPTWProblem("C106", 200),
-									new VRPTWProblem("C107", 200), new VRPTWProblem("C108", 200),
-									new VRPTWProblem("C109", 200)
+		double c1_capacity = 200;
+		String c1_problems[] = {
+									"C101", "C102",
+									"C103", "C104",
+									"C105", "C106",
+									"C107", "C108",
+									"C109"
 									};
 		
-		VRPTWProblem c2_problems[] = {
-									new VRPTWProblem("C201", 700), new VRPTWProblem("C202", 700),
-									new VRPTWProblem("C203", 700), new VRPTWProblem("C204", 700),
-									new VRPTWProblem("C205", 700), new VRPTWProblem("C206", 700),
-									new VRPTWProblem("C207", 700), new VRPTWProblem("C208", 700)
+		double c2_capacity = 700;
+		String c2_problems[] = {
+									"C201", "C202",
+									"C203", "C204",
+									"C205", "C206",
+									"C207", "C208"
 									};
 
-		VRPTWProblem r1_problems[] = {
-									new VRPTWProblem("R101", 200), new VRPTWProblem("R102", 200),
-									new VRPTWProblem("R103", 200), new VRPTWProblem("R104", 200), 
-									new VRPTWProblem("R105", 200), new VRPTWProblem("R106", 200), 
-									new VRPTWProblem("R107", 200), new VRPTWProblem("R108", 200), 
-									new VRPTWProblem("R109", 200), new VRPTWProblem("R110", 200),
-									new VRPTWProblem("R111", 200), new VRPTWProblem("R112", 200)
+		double r1_capacity = 200;
+		String r1_problems[] = {
+									"R101", "R102",
+									"R103", "R104", 
+									"R105", "R106", 
+									"R107", "R108", 
+									"R109", "R110",
+									"R111", "R112"
 									};
 
-		VRPTWProblem r2_problems[] = {
-									new VRPTWProblem("R201", 1000), new VRPTWProblem("R202", 1000),
-									new VRPTWProblem("R203", 1000), new VRPTWProblem("R204", 1000),
-									new VRPTWProblem("R205", 1000), new VRPTWProblem("R206", 1000),
-									new VRPTWProblem("R207", 1000), new VRPTWProblem("R208", 1000),
-									new VRPTWProblem("R209", 1000), new VRPTWProblem("R210", 1000),
-									new VRPTWProblem("R211", 1000)
+		double r2_capacity = 1000;
+		String r2_problems[] = {
+									"R201", "R202",
+									"R203", "R204",
+									"R205", "R206",
+									"R207", "R208",
+									"R209", "R210",
+									"R211"
 									};
 		
-		VRPTWProblem rc1_problems[] = {
-									new VRPTWProblem("RC101", 200), new VRPTWProblem("RC102", 200), 
-									new VRPTWProblem("RC103", 200), new VRPTWProblem("RC104", 200), 
-									new VRPTWProblem("RC105", 200), new VRPTWProblem("RC106", 200), 
-									new VRPTWProblem("RC107", 200), new VRPTWProblem("RC108", 200)
+		double rc1_capacity = 200;
+		String rc1_problems[] = {
+									"RC101", "RC102", 
+									"RC103", "RC104", 
+									"RC105", "RC106", 
+									"RC107", "RC108"
 									};
 
-		VRPTWProblem rc2_problems[] = {
-									new VRPTWProblem("RC201", 1000), new VRPTWProblem("RC202", 1000),
-									new VRPTWProblem("RC203", 1000), new VRPTWProblem("RC204", 1000),
-									new VRPTWProblem("RC205", 1000), new VRPTWProblem("RC206", 1000),
-									new VRPTWProblem("RC207", 1000), new VRPTWProblem("RC208", 1000),
+		double rc2_capacity = 1000;
+		String rc2_problems[] = {
+									"RC201", "RC202",
+									"RC203", "RC204",
+									"RC205", "RC206",
+									"RC207", "RC208",
 									};
 
-		for (VRPTWProblem p : c1_problems) {
+		for (String name : c1_problems) {
+			VRPTWProblem p = new VRPTWProblem(name, c1_capacity);
 			VRPTWSolver solver = new VRPTWSolver();
 			solver.activateDrawingSolutionsMode();
 			System.out.println("## START OPTIMIZATION: "+p.getInstanceName()+" >> ");
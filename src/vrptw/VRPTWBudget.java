@@ -0,0 +1,94 @@
+package vrptw;
+
+import java.util.concurrent.TimeUnit;
+
+public class VRPTWBudget {
+
+	public enum Reason { NONE, EQUILIBRIUM, DEADLINE, TARGET, CANCELLED }
+
+	static final int CHECK_INTERVAL = 256;
+
+	long _time_limit;
+	double _target_cost;
+	double _target_gap;
+
+	volatile long _deadline;
+	volatile boolean _has_deadline;
+	volatile Reason _reason;
+
+	public VRPTWBudget() {
+		_time_limit = -1;
+		_target_cost = Double.NEGATIVE_INFINITY;
+		_target_gap = Double.NaN;
+		_reason = Reason.NONE;
+	}
+
+	public static VRPTWBudget unlimited() {
+		return new VRPTWBudget();
+	}
+
+	public void setTimeLimit(long time, TimeUnit unit) {
+		_time_limit = unit.toNanos(time);
+	}
+
+	public void setTargetCost(double cost) {
+		_target_cost = cost;
+	}
+
+	public void setTargetGap(double percent) {
+		_target_gap = percent;
+	}
+
+	synchronized void start() {
+		_reason = Reason.NONE;
+		_has_deadline = false;
+		if (_time_limit >= 0) {
+			_deadline = System.nanoTime() + _time_limit;
+			_has_deadline = true;
+		}
+	}
+
+	public void cancel() {
+		stop(Reason.CANCELLED);
+	}
+
+	public boolean isCancelled() {
+		return _reason == Reason.CANCELLED;
+	}
+
+	public boolean expired() {
+		if (_reason != Reason.NONE)
+			return true;
+		if (_has_deadline && System.nanoTime() - _deadline >= 0) {
+			stop(Reason.DEADLINE);
+			return true;
+		}
+		return false;
+	}
+
+	public boolean satisfiedBy(VRPTWSolution solution) {
+		if (solution.cost() <= _target_cost)
+			return true;
+		if (Double.isNaN(_target_gap))
+			return false;
+		VRPTWProblem problem = solution._problem;
+		double best = problem.getCurrentBestDistance();
+		if (best <= 0 || solution.getVehicles() > problem.getCurrentBestVehicles())
+			return false;
+		return 100 * (solution.getDistance() - best) / best <= _target_gap;
+	}
+
+	synchronized void stop(Reason reason) {
+		if (_reason == Reason.NONE)
+			_reason = reason;
+	}
+
+	public Reason getReason() {
+		return _reason;
+	}
+
+	public String toString() {
+		return "budget [tempo=" + (_time_limit < 0 ? "illimitato" : TimeUnit.NANOSECONDS.toMillis(_time_limit) + "ms")
+				+ ", costo obiettivo=" + _target_cost + ", gap obiettivo=" + _target_gap + "%]";
+	}
+}
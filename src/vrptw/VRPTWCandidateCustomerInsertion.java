@@ -25,8 +25,7 @@ public class VRPTWCandidateCustomerInsertion implements Comparable<VRPTWCandidat
 	
 	@Override
 	public int compareTo(VRPTWCandidateCustomerInsertion other) {
-		double diff = this.increase - other.increase;
-		return new Long(Math.round(diff)).intValue();
+		return Double.compare(this.increase, other.increase);
 	}
 	
 	public String toString() {
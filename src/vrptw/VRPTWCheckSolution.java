@@ -38,7 +38,7 @@ public class VRPTWCheckSolution {
 		}
 		
 		for (VRPTWCustomer customer : problem.customers) {
-			if ( !customer.isWarehouse() && (customer.getArrivalTime() == 0) ) {
+			if ( !customer.isWarehouse() && !solution.serve(customer) ) {
 				System.err.println("Errore, il cliente " + customer.getID() + " non è stato inserito in alcuna rotta!");
 			}
 		}
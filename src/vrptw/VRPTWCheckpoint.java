@@ -0,0 +1,234 @@
+package vrptw;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+public class VRPTWCheckpoint {
+
+	static final int MAGIC = 0x56525043;
+	static final int VERSION = 2;
+
+	String instance;
+	double capacity;
+	long seed;
+	int epoch;
+	int equilibrium;
+	int[][] best;
+	Worker[] workers;
+	VRPTWSolution best_solution;
+
+	static class Worker {
+		int[][] routes;
+		long random_seed;
+		double temperature;
+		double initial_temperature;
+		double best_cost_seen;
+		double acceptance;
+		int migration_round;
+		long moves;
+		long cpu_time;
+		double[] weights;
+		long[] calls;
+		long[] accepted;
+		long[] improved;
+		double[] gain;
+		long[] nanos;
+		VRPTWSolution solution;
+	}
+
+	static VRPTWCheckpoint capture(VRPTWProblem problem, long seed, int epoch, int equilibrium, VRPTWSolution best, VRPTWSolverThread[] threads) {
+		VRPTWCheckpoint checkpoint = new VRPTWCheckpoint();
+		checkpoint.instance = problem.getInstanceName();
+		checkpoint.capacity = problem.getVehicleCapacity();
+		checkpoint.seed = seed;
+		checkpoint.epoch = epoch;
+		checkpoint.equilibrium = equilibrium;
+		checkpoint.best = routes(best);
+		checkpoint.workers = new Worker[threads.length];
+		for (int i=0; i<threads.length; i++)
+			checkpoint.workers[i] = threads[i].checkpoint();
+		return checkpoint;
+	}
+
+	static int[][] routes(VRPTWSolution solution) {
+		int[][] routes = new int[solution.routes.size()][];
+		for (int r=0; r<routes.length; r++) {
+			VRPTWRoute route = solution.routes.get(r);
+			routes[r] = new int[route.size()-2];
+			for (int k=1; k<route.size()-1; k++)
+				routes[r][k-1] = route.getCustomerID(k);
+		}
+		return routes;
+	}
+
+	static VRPTWSolution solution(VRPTWProblem problem, int[][] routes) throws IOException {
+		VRPTWSolution solution = new VRPTWSolution(problem);
+		int warehouse = problem.getWarehouse()._id;
+		boolean[] served = new boolean[problem.dimension];
+		int total = 0;
+		for (int[] customers : routes) {
+			for (int id : customers) {
+				VRPTWCustomer customer = problem.getCustomer(id);
+				if (customer == null || customer.isWarehouse() || served[id])
+					throw new IOException("checkpoint non valido: cliente " + id + " inatteso per " + problem.getInstanceName());
+				served[id] = true;
+			}
+			total += customers.length;
+			int[] ids = new int[customers.length + 2];
+			ids[0] = ids[ids.length-1] = warehouse;
+			System.arraycopy(customers, 0, ids, 1, customers.length);
+			VRPTWRoute route = new VRPTWRoute(problem);
+			if (!route.rebuild(ids, ids.length))
+				throw new IOException("checkpoint non valido: percorso non ammissibile per " + problem.getInstanceName());
+			solution.addRoute(route);
+		}
+		if (total != problem.getNumberOfCustomers() - 1)
+			throw new IOException("checkpoint non valido: serviti " + total + " clienti su " + (problem.getNumberOfCustomers() - 1));
+		return solution;
+	}
+
+	void restore(VRPTWProblem problem) throws IOException {
+		best_solution = solution(problem, best);
+		for (Worker w : workers)
+			w.solution = solution(problem, w.routes);
+	}
+
+	public String getInstanceName() {
+		return instance;
+	}
+
+	public int getEpoch() {
+		return epoch;
+	}
+
+	public void write(File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(instance);
+		out.writeDouble(capacity);
+		out.writeLong(seed);
+		out.writeInt(epoch);
+		out.writeInt(equilibrium);
+		writeRoutes(out, best);
+		out.writeInt(workers.length);
+		for (Worker w : workers) {
+			writeRoutes(out, w.routes);
+			out.writeLong(w.random_seed);
+			out.writeDouble(w.temperature);
+			out.writeDouble(w.initial_temperature);
+			out.writeDouble(w.best_cost_seen);
+			out.writeDouble(w.acceptance);
+			out.writeInt(w.migration_round);
+			out.writeLong(w.moves);
+			out.writeLong(w.cpu_time);
+			out.writeInt(w.weights.length);
+			for (double weight : w.weights)
+				out.writeDouble(weight);
+			out.writeInt(w.calls.length);
+			for (int k=0; k<w.calls.length; k++) {
+				out.writeLong(w.calls[k]);
+				out.writeLong(w.accepted[k]);
+				out.writeLong(w.improved[k]);
+				out.writeDouble(w.gain[k]);
+				out.writeLong(w.nanos[k]);
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeLong(crc.getValue());
+		out.flush();
+
+		Path target = file.toPath();
+		Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+		Files.write(temporary, bytes.toByteArray());
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void writeRoutes(DataOutputStream out, int[][] routes) throws IOException {
+		out.writeInt(routes.length);
+		for (int[] route : routes) {
+			out.writeInt(route.length);
+			for (int id : route)
+				out.writeInt(id);
+		}
+	}
+
+	public static VRPTWCheckpoint read(File file) throws IOException {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		if (bytes.length < 16)
+			throw new IOException("checkpoint troncato: " + file);
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 8);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		in.skipBytes(bytes.length - 8);
+		if (in.readLong() != crc.getValue())
+			throw new IOException("checkpoint corrotto: " + file);
+
+		in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+		if (in.readInt() != MAGIC)
+			throw new IOException("non è un checkpoint: " + file);
+		int version = in.readInt();
+		if (version < 1 || version > VERSION)
+			throw new IOException("versione di checkpoint non supportata: " + version);
+
+		VRPTWCheckpoint checkpoint = new VRPTWCheckpoint();
+		checkpoint.instance = in.readUTF();
+		checkpoint.capacity = in.readDouble();
+		checkpoint.seed = in.readLong();
+		checkpoint.epoch = in.readInt();
+		checkpoint.equilibrium = in.readInt();
+		checkpoint.best = readRoutes(in);
+		checkpoint.workers = new Worker[in.readInt()];
+		for (int i=0; i<checkpoint.workers.length; i++) {
+			Worker w = new Worker();
+			w.routes = readRoutes(in);
+			w.random_seed = in.readLong();
+			w.temperature = in.readDouble();
+			w.initial_temperature = in.readDouble();
+			w.best_cost_seen = in.readDouble();
+			w.acceptance = in.readDouble();
+			w.migration_round = in.readInt();
+			w.moves = in.readLong();
+			w.cpu_time = in.readLong();
+			w.weights = new double[in.readInt()];
+			for (int k=0; k<w.weights.length; k++)
+				w.weights[k] = in.readDouble();
+			int operators = (version >= 2) ? in.readInt() : 0;
+			w.calls = new long[operators];
+			w.accepted = new long[operators];
+			w.improved = new long[operators];
+			w.gain = new double[operators];
+			w.nanos = new long[operators];
+			for (int k=0; k<operators; k++) {
+				w.calls[k] = in.readLong();
+				w.accepted[k] = in.readLong();
+				w.improved[k] = in.readLong();
+				w.gain[k] = in.readDouble();
+				w.nanos[k] = in.readLong();
+			}
+			checkpoint.workers[i] = w;
+		}
+		return checkpoint;
+	}
+
+	private static int[][] readRoutes(DataInputStream in) throws IOException {
+		int[][] routes = new int[in.readInt()][];
+		for (int r=0; r<routes.length; r++) {
+			routes[r] = new int[in.readInt()];
+			for (int k=0; k<routes[r].length; k++)
+				routes[r][k] = in.readInt();
+		}
+		return routes;
+	}
+
+}
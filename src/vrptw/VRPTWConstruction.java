@@ -0,0 +1,378 @@
+package vrptw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class VRPTWConstruction implements Callable<VRPTWSolution> {
+
+	public enum Heuristic { INSERTION, I1, SWEEP, SAVINGS }
+
+	final VRPTWProblem problem;
+	final Heuristic heuristic;
+	double mu = 1;
+	double lambda = 1;
+	double alpha = 1;
+	boolean farthest_seed = true;
+	double start_angle = 0;
+
+	long nanos;
+
+
+	public VRPTWConstruction(VRPTWProblem problem, Heuristic heuristic) {
+		this.problem = problem;
+		this.heuristic = heuristic;
+	}
+
+	static VRPTWConstruction i1(VRPTWProblem problem, double mu, double lambda, double alpha, boolean farthest_seed) {
+		VRPTWConstruction construction = new VRPTWConstruction(problem, Heuristic.I1);
+		construction.mu = mu;
+		construction.lambda = lambda;
+		construction.alpha = alpha;
+		construction.farthest_seed = farthest_seed;
+		return construction;
+	}
+
+	static VRPTWConstruction sweep(VRPTWProblem problem, double start_angle) {
+		VRPTWConstruction construction = new VRPTWConstruction(problem, Heuristic.SWEEP);
+		construction.start_angle = start_angle;
+		return construction;
+	}
+
+	static VRPTWConstruction savings(VRPTWProblem problem, double lambda) {
+		VRPTWConstruction construction = new VRPTWConstruction(problem, Heuristic.SAVINGS);
+		construction.lambda = lambda;
+		return construction;
+	}
+
+
+	public static List<VRPTWConstruction> portfolio(VRPTWProblem problem) {
+		List<VRPTWConstruction> portfolio = new ArrayList<VRPTWConstruction>();
+		portfolio.add(new VRPTWConstruction(problem, Heuristic.INSERTION));
+		portfolio.add(i1(problem, 1, 1, 1, true));
+		portfolio.add(i1(problem, 1, 2, 1, false));
+		portfolio.add(i1(problem, 1, 1, 0, false));
+		portfolio.add(i1(problem, 1, 2, 0, true));
+		portfolio.add(sweep(problem, 0));
+		portfolio.add(sweep(problem, Math.PI));
+		portfolio.add(savings(problem, 1));
+		portfolio.add(savings(problem, 1.4));
+		return portfolio;
+	}
+
+
+
+	@Override
+	public VRPTWSolution call() {
+		long started = System.nanoTime();
+		VRPTWSolution solution;
+		switch (heuristic) {
+		case I1:
+			solution = i1();
+			break;
+		case SWEEP:
+			solution = sweep();
+			break;
+		case SAVINGS:
+			solution = savings();
+			break;
+		default:
+			solution = insertion(problem);
+		}
+		nanos = System.nanoTime() - started;
+		return solution;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public String toString() {
+		switch (heuristic) {
+		case I1:
+			return "I1(mu=" + mu + ", lambda=" + lambda + ", alpha=" + alpha + ", seme=" + (farthest_seed ? "lontano" : "scadenza") + ")";
+		case SWEEP:
+			return "sweep(angolo=" + Math.round(Math.toDegrees(start_angle)) + ")";
+		case SAVINGS:
+			return "savings(lambda=" + lambda + ")";
+		default:
+			return "inserimento";
+		}
+	}
+
+
+
+	static VRPTWSolution insertion(VRPTWProblem problem) {
+
+		VRPTWSolution solution = new VRPTWSolution(problem);
+
+		VRPTWCustomerPool customerToServe = new VRPTWCustomerPool(problem);
+
+
+		VRPTWInsertionEvaluator candidate_insertions = new VRPTWInsertionEvaluator();
+		VRPTWRoute route = new VRPTWRoute(problem);
+		while (!customerToServe.isEmpty()) {
+
+			LinkedList<VRPTWCustomer> candidate_customers = route.candidate_customers(customerToServe);
+			candidate_insertions.clear();
+
+
+			for (VRPTWCustomer c : candidate_customers) {
+
+				route.candidate_insertions(c, candidate_insertions);
+			}
+			candidate_insertions.order();
+
+
+			VRPTWCustomer customer = null;
+			boolean inserted = false;
+
+			while (!inserted && candidate_insertions.next()) {
+				customer = problem.getCustomer(candidate_insertions.customer);
+				inserted = route.addCustomer(customer, candidate_insertions.prev_customer_idx, candidate_insertions.next_customer_idx);
+			}
+
+			if (inserted)
+				customerToServe.remove(customer);
+
+
+			if ( !inserted || (route._capacity == 0)) {
+				solution.addRoute(route);
+				route = new VRPTWRoute(problem);
+			}
+		}
+		if (route.size() > 2)
+			solution.addRoute(route);
+		return solution;
+	}
+
+
+
+	private int[] unrouted() {
+		int[] ids = new int[problem.getNumberOfCustomers() - 1];
+		int n = 0;
+		for (VRPTWCustomer c : problem.customers)
+			if (!c.isWarehouse())
+				ids[n++] = c._id;
+		return ids;
+	}
+
+	private VRPTWRoute open(int customer_id) {
+		VRPTWRoute route = new VRPTWRoute(problem);
+		if (!route.addCustomer(problem.getCustomer(customer_id), 0, 1))
+			throw new IllegalStateException("il cliente " + customer_id + " non è servibile nemmeno da un veicolo dedicato");
+		return route;
+	}
+
+
+	private VRPTWSolution i1() {
+		VRPTWSolution solution = new VRPTWSolution(problem);
+		int depot = problem.getWarehouse()._id;
+		int[] unrouted = unrouted();
+		int remaining = unrouted.length;
+
+		while (remaining > 0) {
+			int seed = 0;
+			for (int k=1; k<remaining; k++) {
+				int u = unrouted[k], s = unrouted[seed];
+				if (farthest_seed ? problem.distance(depot, u) > problem.distance(depot, s) : problem.due_dates[u] < problem.due_dates[s])
+					seed = k;
+			}
+			VRPTWRoute route = open(unrouted[seed]);
+			unrouted[seed] = unrouted[--remaining];
+
+			while (remaining > 0) {
+				int best = -1, best_position = -1;
+				double best_c2 = Double.NEGATIVE_INFINITY;
+				for (int k=0; k<remaining; k++) {
+					int u = unrouted[k];
+					int position = -1;
+					double c1 = Double.MAX_VALUE;
+					for (int p=0; p<route.size()-1; p++) {
+						if (!route.canInsert(u, p))
+							continue;
+						double cost = insertionCost(route, u, p);
+						if (cost < c1) {
+							c1 = cost;
+							position = p;
+						}
+					}
+					if (position == -1)
+						continue;
+					double c2 = lambda * problem.distance(depot, u) - c1;
+					if (c2 > best_c2) {
+						best_c2 = c2;
+						best = k;
+						best_position = position;
+					}
+				}
+				if (best == -1)
+					break;
+				route.addCustomer(problem.getCustomer(unrouted[best]), best_position, best_position+1);
+				unrouted[best] = unrouted[--remaining];
+			}
+			solution.addRoute(route);
+		}
+		return solution;
+	}
+
+	private double insertionCost(VRPTWRoute route, int u, int p) {
+		int i = route.getCustomerID(p), j = route.getCustomerID(p+1);
+		double c11 = problem.distance(i, u) + problem.distance(u, j) - mu * problem.distance(i, j);
+		double start_u = Math.max(problem.ready_times[u], route.getCompletedTime(p) + problem.travelTime(i, u));
+		double start_j = Math.max(problem.ready_times[j], start_u + problem.service_times[u] + problem.travelTime(u, j));
+		double c12 = start_j - route.getActualStart(p+1);
+		return alpha * c11 + (1 - alpha) * c12;
+	}
+
+
+
+	private VRPTWSolution sweep() {
+		VRPTWSolution solution = new VRPTWSolution(problem);
+		VRPTWCustomer depot = problem.getWarehouse();
+		int[] unrouted = unrouted();
+		double[] angles = new double[problem.dimension];
+		Integer[] order = new Integer[unrouted.length];
+		for (int k=0; k<unrouted.length; k++) {
+			int u = unrouted[k];
+			double angle = Math.atan2(problem.positions_y[u] - depot._position_y, problem.positions_x[u] - depot._position_x) - start_angle;
+			angles[u] = (angle < 0) ? angle + 2*Math.PI : angle;
+			order[k] = u;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(angles[a], angles[b]));
+
+		VRPTWRoute route = null;
+		for (int u : order) {
+			int position = -1;
+			if (route != null) {
+				double best = Double.MAX_VALUE;
+				for (int p=0; p<route.size()-1; p++) {
+					if (!route.canInsert(u, p))
+						continue;
+					double delta = route.insertionDistanceDelta(u, p);
+					if (delta < best) {
+						best = delta;
+						position = p;
+					}
+				}
+			}
+			if (position == -1) {
+				if (route != null)
+					solution.addRoute(route);
+				route = open(u);
+			} else
+				route.addCustomer(problem.getCustomer(u), position, position+1);
+		}
+		if (route != null)
+			solution.addRoute(route);
+		return solution;
+	}
+
+
+
+	private VRPTWSolution savings() {
+		int depot = problem.getWarehouse()._id;
+		int[] customers = unrouted();
+		int dimension = problem.dimension;
+		double capacity = problem.getVehicleCapacity();
+
+		int[] route_of = new int[dimension];
+		int[] next = new int[dimension];
+		int[] first = new int[dimension];
+		int[] last = new int[dimension];
+		VRPTWSegment[] segments = new VRPTWSegment[dimension];
+		for (int c : customers) {
+			route_of[c] = c;
+			next[c] = -1;
+			first[c] = last[c] = c;
+			segments[c] = new VRPTWSegment();
+			segments[c].setNode(problem, c);
+		}
+
+		int k = problem.getNeighborhoodSize();
+		int pairs = customers.length * k;
+		int[] from = new int[pairs];
+		int[] to = new int[pairs];
+		double[] saving = new double[pairs];
+		Integer[] order = new Integer[pairs];
+		int n = 0;
+		for (int i : customers)
+			for (int rank=0; rank<k; rank++) {
+				int j = problem.getNeighbor(i, rank);
+				if (j < 0)
+					continue;
+				from[n] = i;
+				to[n] = j;
+				saving[n] = problem.distance(depot, i) + problem.distance(depot, j) - lambda * problem.distance(i, j);
+				order[n] = n;
+				n++;
+			}
+		Arrays.sort(order, 0, n, (a, b) -> Double.compare(saving[b], saving[a]));
+
+		VRPTWSegment merged = new VRPTWSegment();
+		VRPTWSegment check = new VRPTWSegment();
+		for (int o=0; o<n; o++) {
+			int pair = order[o];
+			if (saving[pair] <= 0)
+				break;
+			int i = from[pair], j = to[pair];
+			for (int orientation=0; orientation<2; orientation++) {
+				int a = (orientation == 0) ? i : j;
+				int b = (orientation == 0) ? j : i;
+				int ra = route_of[a], rb = route_of[b];
+				if (ra == rb || last[ra] != a || first[rb] != b)
+					continue;
+				merged.concatenate(problem, segments[ra], segments[rb]);
+				if (merged.load > capacity)
+					continue;
+				check.setNode(problem, depot);
+				check.append(problem, merged);
+				check.appendNode(problem, depot);
+				if (!check.feasible)
+					continue;
+
+				next[a] = b;
+				last[ra] = last[rb];
+				segments[ra].set(merged);
+				for (int c=b; c!=-1; c=next[c])
+					route_of[c] = ra;
+				break;
+			}
+		}
+
+		VRPTWSolution solution = new VRPTWSolution(problem);
+		int[] ids = new int[customers.length + 2];
+		for (int c : customers) {
+			if (route_of[c] != c)
+				continue;
+			int size = 0;
+			ids[size++] = depot;
+			for (int v=first[c]; v!=-1; v=next[v])
+				ids[size++] = v;
+			ids[size++] = depot;
+			VRPTWRoute route = new VRPTWRoute(problem);
+			if (route.rebuild(ids, size))
+				solution.addRoute(route);
+			else
+				split(solution, ids, size);
+		}
+		return solution;
+	}
+
+	private void split(VRPTWSolution solution, int[] ids, int size) {
+		VRPTWRoute route = null;
+		for (int k=1; k<size-1; k++) {
+			VRPTWCustomer customer = problem.getCustomer(ids[k]);
+			if (route != null && route.addCustomer(customer))
+				continue;
+			if (route != null)
+				solution.addRoute(route);
+			route = open(ids[k]);
+		}
+		if (route != null)
+			solution.addRoute(route);
+	}
+
+}
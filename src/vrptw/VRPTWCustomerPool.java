@@ -0,0 +1,132 @@
+package vrptw;
+
+public class VRPTWCustomerPool {
+
+	static final int EARLIEST = 0;
+	static final int TIGHTEST = 1;
+	static final int FARTHEST = 2;
+
+	final VRPTWProblem _problem;
+	final boolean[] _pooled;
+	final int[] _rank;
+	final double[][] _keys;
+	final int[][] _heaps;
+	final int[] _sizes;
+	final int[] _held;
+	int _size;
+
+
+	public VRPTWCustomerPool(VRPTWProblem problem) {
+		_problem = problem;
+		int dimension = problem.dimension;
+		int n = problem.getNumberOfCustomers();
+		_pooled = new boolean[dimension];
+		_rank = new int[dimension];
+		_keys = new double[3][dimension];
+		_heaps = new int[3][n];
+		_sizes = new int[3];
+		_held = new int[2];
+
+		VRPTWCustomer warehouse = problem.getWarehouse();
+		for (VRPTWCustomer c : problem.customers) {
+			if (c.isWarehouse())
+				continue;
+			int id = c._id;
+			double distance = problem.distance(c, warehouse);
+			_keys[EARLIEST][id] = c.getStartTimeWindow();
+			_keys[TIGHTEST][id] = 1000 * (c.getEndTimeWindow() - c.getStartTimeWindow()) - distance;
+			_keys[FARTHEST][id] = -distance;
+			_rank[id] = _size++;
+			_pooled[id] = true;
+			for (int h=0; h<3; h++)
+				push(h, id);
+		}
+	}
+
+	public boolean isEmpty() {
+		return _size == 0;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	public boolean contains(VRPTWCustomer customer) {
+		return _pooled[customer._id];
+	}
+
+	public void remove(VRPTWCustomer customer) {
+		if (_pooled[customer._id]) {
+			_pooled[customer._id] = false;
+			_size--;
+		}
+	}
+
+
+
+	VRPTWCustomer first(int heap, VRPTWCustomer exclude, VRPTWCustomer exclude_too) {
+		int[] entries = _heaps[heap];
+		int held = 0;
+		while (_sizes[heap] > 0) {
+			int top = entries[0];
+			if (!_pooled[top])
+				pop(heap);
+			else if ((exclude != null && top == exclude._id) || (exclude_too != null && top == exclude_too._id))
+				_held[held++] = pop(heap);
+			else
+				break;
+		}
+		int first = (_sizes[heap] > 0) ? entries[0] : -1;
+		for (int k=0; k<held; k++)
+			push(heap, _held[k]);
+		return (first < 0) ? null : _problem.getCustomer(first);
+	}
+
+	double key(int heap, VRPTWCustomer customer) {
+		return _keys[heap][customer._id];
+	}
+
+
+
+	private boolean before(int heap, int a, int b) {
+		double[] keys = _keys[heap];
+		int order = Double.compare(keys[a], keys[b]);
+		return (order != 0) ? order < 0 : _rank[a] < _rank[b];
+	}
+
+	private void push(int heap, int id) {
+		int[] entries = _heaps[heap];
+		int i = _sizes[heap]++;
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (!before(heap, id, entries[parent]))
+				break;
+			entries[i] = entries[parent];
+			i = parent;
+		}
+		entries[i] = id;
+	}
+
+	private int pop(int heap) {
+		int[] entries = _heaps[heap];
+		int top = entries[0];
+		int size = --_sizes[heap];
+		int last = entries[size];
+		int i = 0;
+		while (true) {
+			int child = 2*i + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && before(heap, entries[child+1], entries[child]))
+				child++;
+			if (!before(heap, entries[child], last))
+				break;
+			entries[i] = entries[child];
+			i = child;
+		}
+		if (size > 0)
+			entries[i] = last;
+		return top;
+	}
+
+}
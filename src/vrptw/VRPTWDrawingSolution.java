@@ -64,7 +64,8 @@ public class VRPTWDrawingSolution {
 				double x = pre_x;
 				double y = pre_y;
 				
-				for (VRPTWCustomer customer : route.customers) {
+				for (int i=0; i<route.size(); i++) {
+					VRPTWCustomer customer = route.getCustomer(i);
 					x = BORDER_LEFT + customer._position_x * zoom;
 					y = BORDER_TOP +  customer._position_y * zoom;
 
@@ -0,0 +1,121 @@
+package vrptw;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public class VRPTWEvents {
+
+	@Name("vrptw.Epoch")
+	@Label("Worker Epoch")
+	@Category("VRPTW")
+	@Description("One annealing epoch of a solver worker")
+	@StackTrace(false)
+	static class Epoch extends Event {
+		@Label("Worker")
+		int worker;
+		@Label("Temperature")
+		double temperature;
+		@Label("Start Cost")
+		double startCost;
+		@Label("Cost")
+		double cost;
+		@Label("Moves")
+		long moves;
+		@Label("Accepted Moves")
+		long accepted;
+	}
+
+	@Name("vrptw.Migration")
+	@Label("Migration")
+	@Category("VRPTW")
+	@Description("Island migration: mailbox adoption and hand-off of the worker's solution")
+	@StackTrace(false)
+	static class Migration extends Event {
+		@Label("Worker")
+		int worker;
+		@Label("Temperature")
+		double temperature;
+		@Label("Cost")
+		double cost;
+		@Label("Adopted")
+		boolean adopted;
+		@Label("Targets")
+		int targets;
+	}
+
+	@Name("vrptw.EpochWait")
+	@Label("Epoch Wait")
+	@Category("VRPTW")
+	@Description("Supervisor blocked until every worker of the epoch has finished")
+	@StackTrace(false)
+	static class EpochWait extends Event {
+		@Label("Epoch")
+		int epoch;
+		@Label("Temperature")
+		double temperature;
+		@Label("Cost")
+		double cost;
+		@Label("Worker Idle Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long idle;
+	}
+
+	@Name("vrptw.Reduction")
+	@Label("Reduction")
+	@Category("VRPTW")
+	@Description("Supervisor reduction of the workers' solutions after an epoch")
+	@StackTrace(false)
+	static class Reduction extends Event {
+		@Label("Epoch")
+		int epoch;
+		@Label("Cost")
+		double cost;
+		@Label("Improved")
+		boolean improved;
+		@Label("Equilibrium")
+		int equilibrium;
+	}
+
+	@Name("vrptw.Improvement")
+	@Label("Improvement")
+	@Category("VRPTW")
+	@Description("New best cost of a worker (worker -1 is the supervisor's global best)")
+	@StackTrace(false)
+	static class Improvement extends Event {
+		@Label("Worker")
+		int worker;
+		@Label("Temperature")
+		double temperature;
+		@Label("Cost")
+		double cost;
+		@Label("Operator")
+		String operator;
+	}
+
+	@Name("vrptw.Move")
+	@Label("Sampled Move")
+	@Category("VRPTW")
+	@Description("Sampled move evaluation, one every VRPTWParameters.jfr_move_sampling moves")
+	@StackTrace(false)
+	@Enabled(false)
+	static class Move extends Event {
+		@Label("Worker")
+		int worker;
+		@Label("Temperature")
+		double temperature;
+		@Label("Cost")
+		double cost;
+		@Label("Operator")
+		String operator;
+		@Label("Accepted")
+		boolean accepted;
+		@Label("Gain")
+		double gain;
+	}
+}
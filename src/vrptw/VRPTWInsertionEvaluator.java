@@ -0,0 +1,106 @@
+package vrptw;
+
+import java.util.Arrays;
+
+public class VRPTWInsertionEvaluator {
+
+	static final int INITIAL_LENGTH = 64;
+
+	int[] _customers = new int[INITIAL_LENGTH];
+	int[] _positions = new int[INITIAL_LENGTH];
+	double[] _costs = new double[INITIAL_LENGTH];
+	int _size;
+
+	int[] _heap = new int[INITIAL_LENGTH];
+	int _heap_size;
+
+	int customer;
+	int prev_customer_idx;
+	int next_customer_idx;
+	double increase;
+
+
+	public void clear() {
+		_size = 0;
+		_heap_size = 0;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	void add(int customer_id, int prev_customer_idx, double increase) {
+		if (_size == _costs.length) {
+			int length = _size << 1;
+			_customers = Arrays.copyOf(_customers, length);
+			_positions = Arrays.copyOf(_positions, length);
+			_costs = Arrays.copyOf(_costs, length);
+			_heap = new int[length];
+		}
+		_customers[_size] = customer_id;
+		_positions[_size] = prev_customer_idx;
+		_costs[_size] = increase;
+		_size++;
+	}
+
+
+
+	public boolean best() {
+		int best = -1;
+		for (int k=0; k<_size; k++)
+			if (best == -1 || _costs[k] < _costs[best])
+				best = k;
+		return select(best);
+	}
+
+	public void order() {
+		_heap_size = _size;
+		for (int k=0; k<_size; k++)
+			_heap[k] = k;
+		for (int k=(_size >> 1) - 1; k>=0; k--)
+			siftDown(k);
+	}
+
+	public boolean next() {
+		if (_heap_size == 0)
+			return select(-1);
+		int top = _heap[0];
+		_heap[0] = _heap[--_heap_size];
+		siftDown(0);
+		return select(top);
+	}
+
+	private boolean select(int k) {
+		if (k == -1)
+			return false;
+		customer = _customers[k];
+		prev_customer_idx = _positions[k];
+		next_customer_idx = prev_customer_idx + 1;
+		increase = _costs[k];
+		return true;
+	}
+
+
+
+	private boolean before(int a, int b) {
+		int order = Double.compare(_costs[a], _costs[b]);
+		return (order != 0) ? order < 0 : a < b;
+	}
+
+	private void siftDown(int i) {
+		int entry = _heap[i];
+		while (true) {
+			int child = 2*i + 1;
+			if (child >= _heap_size)
+				break;
+			if (child + 1 < _heap_size && before(_heap[child+1], _heap[child]))
+				child++;
+			if (!before(_heap[child], entry))
+				break;
+			_heap[i] = _heap[child];
+			i = child;
+		}
+		_heap[i] = entry;
+	}
+
+}
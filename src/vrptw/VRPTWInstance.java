@@ -0,0 +1,260 @@
+package vrptw;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class VRPTWInstance {
+
+	static final double NEIGHBOR_WAITING_WEIGHT = 0.2;
+	static final double NEIGHBOR_LATENESS_WEIGHT = 1.0;
+
+	String name;
+	long source_length;
+	long source_modified;
+
+	double capacity;
+	int vehicles;
+
+	double best_distance;
+	int best_vehicles;
+	double optimum_distance;
+	int optimum_vehicles;
+
+
+	int[] ids;
+	int depot;
+	int dimension;
+	double[] positions_x;
+	double[] positions_y;
+	double[] demands;
+	double[] ready_times;
+	double[] due_dates;
+	double[] service_times;
+
+
+	double[] distances;
+	int neighbor_k;
+	int[] neighbors;
+
+
+
+	static VRPTWInstance parse(String name, File file) throws IOException {
+		VRPTWInstance instance = new VRPTWInstance();
+		instance.name = name;
+		instance.source_length = file.length();
+		instance.source_modified = file.lastModified();
+
+		int n = 0, column = 0, max_id = 0;
+		int[] ids = new int[128];
+		double[] rows = new double[128*6];
+		try (Tokenizer in = new Tokenizer(file)) {
+			while (in.next()) {
+				if (!in.isNumber()) {
+					if (column != 0)
+						throw in.error("riga cliente incompleta prima di '" + in.word() + "'");
+					String word = in.word();
+					if (word.equalsIgnoreCase("VEHICLE")) {
+						instance.vehicles = (int) in.nextNumber();
+						instance.capacity = in.nextNumber();
+					} else if (word.equals("Best")) {
+						instance.best_distance = in.nextNumber();
+						instance.best_vehicles = (int) in.nextNumber();
+					} else if (word.equals("Optimal")) {
+						instance.optimum_distance = in.nextNumber();
+						instance.optimum_vehicles = (int) in.nextNumber();
+					}
+					continue;
+				}
+
+				if (column == 0) {
+					double id = in.number();
+					if (id < 0 || id != Math.rint(id))
+						throw in.error("id cliente non valido: " + id);
+					if (n == ids.length) {
+						ids = Arrays.copyOf(ids, n << 1);
+						rows = Arrays.copyOf(rows, 6*(n << 1));
+					}
+					ids[n] = (int) id;
+					max_id = Math.max(max_id, ids[n]);
+				} else
+					rows[6*n + column - 1] = in.number();
+				if (++column == 7) {
+					column = 0;
+					n++;
+				}
+			}
+			if (column != 0)
+				throw in.error("riga cliente incompleta a fine file");
+		}
+		if (n < 2)
+			throw new IOException(file + ": istanza senza clienti");
+
+		instance.ids = Arrays.copyOf(ids, n);
+		instance.allocate(max_id + 1);
+		boolean[] seen = new boolean[max_id + 1];
+		instance.depot = -1;
+		for (int i=0; i<n; i++) {
+			int id = ids[i];
+			if (seen[id])
+				throw new IOException(file + ": cliente " + id + " duplicato");
+			seen[id] = true;
+			instance.positions_x[id] = rows[6*i];
+			instance.positions_y[id] = rows[6*i + 1];
+			instance.demands[id] = rows[6*i + 2];
+			instance.ready_times[id] = rows[6*i + 3];
+			instance.due_dates[id] = rows[6*i + 4];
+			instance.service_times[id] = rows[6*i + 5];
+			if (instance.demands[id] == 0 && (instance.depot < 0 || instance.due_dates[id] > instance.due_dates[instance.depot]))
+				instance.depot = id;
+		}
+		if (instance.depot < 0)
+			throw new IOException(file + ": deposito non trovato");
+		return instance;
+	}
+
+
+
+	static class Tokenizer implements Closeable {
+		static final double[] POWERS = { 1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+		final Reader reader;
+		final File file;
+		char[] token = new char[64];
+		int length;
+		int line = 1;
+		int pending = -2;
+
+		Tokenizer(File file) throws IOException {
+			this.file = file;
+			reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+		}
+
+		boolean next() throws IOException {
+			int c = (pending != -2) ? pending : reader.read();
+			pending = -2;
+			while (c != -1 && Character.isWhitespace(c)) {
+				if (c == '\n')
+					line++;
+				c = reader.read();
+			}
+			if (c == -1)
+				return false;
+			length = 0;
+			while (c != -1 && !Character.isWhitespace(c)) {
+				if (length == token.length)
+					token = Arrays.copyOf(token, length << 1);
+				token[length++] = (char) c;
+				c = reader.read();
+			}
+			pending = c;
+			return true;
+		}
+
+		boolean isNumber() {
+			char c = token[0];
+			return (c >= '0' && c <= '9') || ((c == '-' || c == '+' || c == '.') && length > 1);
+		}
+
+		double number() throws IOException {
+			long mantissa = 0;
+			int i = 0, decimals = 0;
+			boolean negative = token[0] == '-';
+			if (negative || token[0] == '+')
+				i++;
+			for (; i<length && token[i] >= '0' && token[i] <= '9'; i++)
+				mantissa = 10*mantissa + (token[i] - '0');
+			if (i < length && token[i] == '.')
+				for (i++; i<length && token[i] >= '0' && token[i] <= '9'; i++, decimals++)
+					mantissa = 10*mantissa + (token[i] - '0');
+			if (i < length || length > 15 || decimals >= POWERS.length) {
+				try {
+					return Double.parseDouble(word());
+				} catch (NumberFormatException e) {
+					throw error("numero non valido: " + word());
+				}
+			}
+			double value = mantissa / POWERS[decimals];
+			return negative ? -value : value;
+		}
+
+		double nextNumber() throws IOException {
+			while (next())
+				if (isNumber())
+					return number();
+			throw error("numero atteso a fine file");
+		}
+
+		String word() {
+			return new String(token, 0, length);
+		}
+
+		IOException error(String message) {
+			return new IOException(file + ":" + line + ": " + message);
+		}
+
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+
+
+	void allocate(int dimension) {
+		this.dimension = dimension;
+		positions_x = new double[dimension];
+		positions_y = new double[dimension];
+		demands = new double[dimension];
+		ready_times = new double[dimension];
+		due_dates = new double[dimension];
+		service_times = new double[dimension];
+	}
+
+
+
+	void derive(int k) {
+		distances = new double[dimension*dimension];
+		for (int a : ids)
+			for (int b : ids)
+				distances[a*dimension + b] = VRPTWUtils.distance(positions_x[a], positions_y[a], positions_x[b], positions_y[b]);
+
+		neighbor_k = Math.max(0, Math.min(k, ids.length - 2));
+		neighbors = new int[dimension*neighbor_k];
+		Arrays.fill(neighbors, -1);
+
+		int warehouse = depot;
+		Integer[] candidates = new Integer[ids.length];
+		double[] scores = new double[dimension];
+		for (int c : ids) {
+			if (c == warehouse)
+				continue;
+			int n = 0;
+			for (int other : ids) {
+				if (other == warehouse || other == c)
+					continue;
+				scores[other] = Math.min(correlation(c, other), correlation(other, c));
+				candidates[n++] = other;
+			}
+			Arrays.sort(candidates, 0, n, (a, b) -> Double.compare(scores[a], scores[b]));
+			for (int i=0; i<neighbor_k && i<n; i++)
+				neighbors[c*neighbor_k + i] = candidates[i];
+		}
+	}
+
+
+	private double correlation(int from, int to) {
+		double travel = distances[from*dimension + to];
+		double waiting = Math.max(ready_times[to] - service_times[from] - travel - due_dates[from], 0);
+		double lateness = Math.max(ready_times[from] + service_times[from] + travel - due_dates[to], 0);
+		return travel + NEIGHBOR_WAITING_WEIGHT*waiting + NEIGHBOR_LATENESS_WEIGHT*lateness;
+	}
+
+	boolean isDerived(int k) {
+		return distances != null && neighbors != null && neighbor_k == Math.max(0, Math.min(k, ids.length - 2));
+	}
+
+}
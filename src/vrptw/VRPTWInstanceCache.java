@@ -0,0 +1,157 @@
+package vrptw;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class VRPTWInstanceCache {
+
+	static final int MAGIC = 0x56525049;
+	static final int VERSION = 2;
+	static final int HEADER = 96;
+
+	static File folder = new File(VRPTWParameters.instance_cache);
+
+
+	public static VRPTWInstance load(String name) throws IOException {
+		File source = VRPTWInstanceCatalog.getDefault().resolve(name);
+		name = VRPTWInstanceCatalog.nameOf(source);
+		if (VRPTWParameters.instance_cache.isEmpty())
+			return build(name, source);
+
+		File cached = new File(folder, name + ".bin");
+		if (cached.isFile()) {
+			VRPTWInstance instance = read(name, cached);
+			if (instance != null && instance.source_length == source.length() && instance.source_modified == source.lastModified())
+				return instance;
+		}
+
+		VRPTWInstance instance = build(name, source);
+		try {
+			write(instance, cached);
+		} catch (IOException e) {
+			System.err.println("Impossibile scrivere la cache dell'istanza " + cached + ": " + e.getMessage());
+		}
+		return instance;
+	}
+
+	private static VRPTWInstance build(String name, File source) throws IOException {
+		VRPTWInstance instance = VRPTWInstance.parse(name, source);
+		instance.derive(VRPTWParameters.neighbors);
+		return instance;
+	}
+
+
+
+	static VRPTWInstance read(String name, File file) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() < HEADER)
+				return null;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			return null;
+		VRPTWInstance instance = new VRPTWInstance();
+		instance.name = name;
+		instance.source_length = buffer.getLong();
+		instance.source_modified = buffer.getLong();
+		instance.best_distance = buffer.getDouble();
+		instance.optimum_distance = buffer.getDouble();
+		instance.capacity = buffer.getDouble();
+		if (buffer.getDouble() != VRPTWInstance.NEIGHBOR_WAITING_WEIGHT || buffer.getDouble() != VRPTWInstance.NEIGHBOR_LATENESS_WEIGHT)
+			return null;
+		instance.best_vehicles = buffer.getInt();
+		instance.optimum_vehicles = buffer.getInt();
+		int n = buffer.getInt();
+		int dimension = buffer.getInt();
+		instance.neighbor_k = buffer.getInt();
+		instance.depot = buffer.getInt();
+		instance.vehicles = buffer.getInt();
+		buffer.position(HEADER);
+
+		long expected = HEADER + 8L * (6L*dimension + (long) dimension*dimension) + 4L * (n + (long) dimension*instance.neighbor_k);
+		if (buffer.capacity() != expected || instance.depot < 0 || instance.depot >= dimension)
+			return null;
+
+		instance.allocate(dimension);
+		instance.distances = new double[dimension*dimension];
+		instance.ids = new int[n];
+		instance.neighbors = new int[dimension*instance.neighbor_k];
+		int position = HEADER;
+		for (double[] column : columns(instance)) {
+			buffer.position(position);
+			buffer.asDoubleBuffer().get(column);
+			position += 8 * column.length;
+		}
+		buffer.position(position);
+		buffer.asIntBuffer().get(instance.ids);
+		buffer.position(position + 4 * n);
+		buffer.asIntBuffer().get(instance.neighbors);
+
+		if (!instance.isDerived(VRPTWParameters.neighbors))
+			return null;
+		return instance;
+	}
+
+
+
+	static void write(VRPTWInstance instance, File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		Files.createDirectories(directory.toPath());
+		Path temporary = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+		int dimension = instance.dimension;
+		long size = HEADER + 8L * (6L*dimension + (long) dimension*dimension) + 4L * (instance.ids.length + (long) instance.neighbors.length);
+
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				buffer.order(ByteOrder.LITTLE_ENDIAN);
+				buffer.putInt(MAGIC);
+				buffer.putInt(VERSION);
+				buffer.putLong(instance.source_length);
+				buffer.putLong(instance.source_modified);
+				buffer.putDouble(instance.best_distance);
+				buffer.putDouble(instance.optimum_distance);
+				buffer.putDouble(instance.capacity);
+				buffer.putDouble(VRPTWInstance.NEIGHBOR_WAITING_WEIGHT);
+				buffer.putDouble(VRPTWInstance.NEIGHBOR_LATENESS_WEIGHT);
+				buffer.putInt(instance.best_vehicles);
+				buffer.putInt(instance.optimum_vehicles);
+				buffer.putInt(instance.ids.length);
+				buffer.putInt(dimension);
+				buffer.putInt(instance.neighbor_k);
+				buffer.putInt(instance.depot);
+				buffer.putInt(instance.vehicles);
+
+				int position = HEADER;
+				for (double[] column : columns(instance)) {
+					buffer.position(position);
+					buffer.asDoubleBuffer().put(column);
+					position += 8 * column.length;
+				}
+				buffer.position(position);
+				buffer.asIntBuffer().put(instance.ids);
+				buffer.position(position + 4 * instance.ids.length);
+				buffer.asIntBuffer().put(instance.neighbors);
+				buffer.force();
+			}
+			Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private static double[][] columns(VRPTWInstance instance) {
+		return new double[][] { instance.positions_x, instance.positions_y, instance.demands, instance.ready_times, instance.due_dates, instance.service_times, instance.distances };
+	}
+
+}
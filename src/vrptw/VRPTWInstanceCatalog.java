@@ -0,0 +1,116 @@
+package vrptw;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+public class VRPTWInstanceCatalog {
+
+	static final String[] EXTENSIONS = { "", ".txt", ".TXT", ".vrp" };
+	static final int MAX_DEPTH = 3;
+
+	private static VRPTWInstanceCatalog shared;
+
+	final File[] roots;
+	private Map<String, File> index;
+
+
+	public VRPTWInstanceCatalog(File... roots) {
+		this.roots = roots;
+	}
+
+	public static synchronized VRPTWInstanceCatalog getDefault() {
+		if (shared == null) {
+			String[] paths = VRPTWParameters.instance_path.split(File.pathSeparator);
+			File[] roots = new File[paths.length];
+			for (int i=0; i<paths.length; i++)
+				roots[i] = new File(paths[i]);
+			shared = new VRPTWInstanceCatalog(roots);
+		}
+		return shared;
+	}
+
+
+
+	public File resolve(String name) throws IOException {
+		File direct = new File(name);
+		if (direct.isFile() && (direct.isAbsolute() || name.contains(File.separator)))
+			return direct;
+
+		for (File root : roots)
+			for (String extension : EXTENSIONS) {
+				File candidate = new File(root, name + extension);
+				if (candidate.isFile())
+					return candidate;
+			}
+
+		File indexed = index().get(name.toUpperCase());
+		if (indexed == null)
+			throw new IOException("istanza non trovata: " + name + " (cercata in " + describeRoots() + ")");
+		return indexed;
+	}
+
+	public List<String> names(String problem_class) {
+		Pattern pattern = Pattern.compile(Pattern.quote(problem_class.toUpperCase()) + "(\\d\\d|_\\d+)");
+		List<String> names = new ArrayList<String>();
+		for (Map.Entry<String, File> entry : index().entrySet())
+			if (pattern.matcher(entry.getKey()).matches())
+				names.add(nameOf(entry.getValue()));
+		Collections.sort(names, (a, b) -> compareNames(a, b));
+		return names;
+	}
+
+	public static String nameOf(File file) {
+		String name = file.getName();
+		for (String extension : EXTENSIONS)
+			if (!extension.isEmpty() && name.endsWith(extension))
+				return name.substring(0, name.length() - extension.length());
+		return name;
+	}
+
+
+
+	private synchronized Map<String, File> index() {
+		if (index == null) {
+			index = new TreeMap<String, File>();
+			for (File root : roots)
+				scan(root, 0);
+		}
+		return index;
+	}
+
+	private void scan(File directory, int depth) {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			if (file.isDirectory()) {
+				if (depth < MAX_DEPTH)
+					scan(file, depth + 1);
+			} else if (isInstanceName(nameOf(file)))
+				index.putIfAbsent(nameOf(file).toUpperCase(), file);
+		}
+	}
+
+	private static boolean isInstanceName(String name) {
+		return name.matches("(?i)(C|R|RC)\\d+(_\\d+)*");
+	}
+
+	private static int compareNames(String a, String b) {
+		int length = Integer.compare(a.length(), b.length());
+		return (length != 0) ? length : a.compareToIgnoreCase(b);
+	}
+
+	private String describeRoots() {
+		StringBuilder description = new StringBuilder();
+		for (File root : roots)
+			description.append(description.length() > 0 ? ", " : "").append(root);
+		return description.toString();
+	}
+
+}
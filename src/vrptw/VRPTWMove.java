@@ -0,0 +1,204 @@
+package vrptw;
+
+public class VRPTWMove {
+
+	public static final int TWO_OPT_STAR = 0;
+	public static final int OR_OPT = 1;
+	public static final int CROSS_EXCHANGE = 2;
+
+	static final int MAX_SEGMENT_LENGTH = 3;
+
+	int type;
+	VRPTWRoute r1;
+	VRPTWRoute r2;
+	int i, l1;
+	int j, l2;
+
+	boolean feasible;
+	double delta;
+	int r1_new_size;
+	int r2_new_size;
+
+	final VRPTWSegment _first = new VRPTWSegment();
+	final VRPTWSegment _second = new VRPTWSegment();
+	final VRPTWSegment _middle = new VRPTWSegment();
+
+	int[] _buffer1 = new int[VRPTWRoute.INITIAL_LENGTH];
+	int[] _buffer2 = new int[VRPTWRoute.INITIAL_LENGTH];
+
+
+	public void twoOptStar(VRPTWRoute r1, int i, VRPTWRoute r2, int j) {
+		set(TWO_OPT_STAR, r1, i, 0, r2, j, 0);
+	}
+
+
+	public void orOpt(VRPTWRoute r1, int i, int length, VRPTWRoute r2, int j) {
+		set(OR_OPT, r1, i, length, r2, j, 0);
+	}
+
+
+	public void crossExchange(VRPTWRoute r1, int i, int l1, VRPTWRoute r2, int j, int l2) {
+		set(CROSS_EXCHANGE, r1, i, l1, r2, j, l2);
+	}
+
+	private void set(int type, VRPTWRoute r1, int i, int l1, VRPTWRoute r2, int j, int l2) {
+		this.type = type;
+		this.r1 = r1;
+		this.r2 = r2;
+		this.i = i;
+		this.l1 = l1;
+		this.j = j;
+		this.l2 = l2;
+		feasible = false;
+		delta = Double.MAX_VALUE;
+	}
+
+
+
+	public void prepare() {
+		r1.ensureSegments();
+		r2.ensureSegments();
+		if (type == OR_OPT && r1 == r2)
+			r1.ensureSegmentTable();
+	}
+
+
+	public boolean evaluate(VRPTWSolution solution) {
+		VRPTWProblem problem = r1._problem;
+		double capacity = r1._initial_capacity;
+		prepare();
+		feasible = false;
+
+		switch (type) {
+		case TWO_OPT_STAR:
+			if (r1 == r2 || (i == r1.size()-2 && j == r2.size()-2))
+				return false;
+			_first.concatenate(problem, r1.prefix(i), r2.suffix(j+1));
+			_second.concatenate(problem, r2.prefix(j), r1.suffix(i+1));
+			r1_new_size = (i+1) + (r2.size()-j-1);
+			r2_new_size = (j+1) + (r1.size()-i-1);
+			break;
+
+		case OR_OPT:
+			r1.segment(i, i+l1-1, _middle);
+			if (r1 == r2) {
+				if (j >= i-1 && j <= i+l1-1)
+					return false;
+				if (j < i) {
+					r1.segment(j+1, i-1, _second);
+					_first.concatenate(problem, r1.prefix(j), _middle);
+					_first.append(problem, _second);
+					_first.append(problem, r1.suffix(i+l1));
+				} else {
+					r1.segment(i+l1, j, _second);
+					_first.concatenate(problem, r1.prefix(i-1), _second);
+					_first.append(problem, _middle);
+					_first.append(problem, r1.suffix(j+1));
+				}
+				r1_new_size = r1.size();
+				if (!_first.feasible)
+					return false;
+				feasible = true;
+				delta = solution.costDelta(_first.distance - r1.travelDistance(), r1, r1_new_size, null, 0);
+				return true;
+			}
+			_first.concatenate(problem, r1.prefix(i-1), r1.suffix(i+l1));
+			_second.concatenate(problem, r2.prefix(j), _middle);
+			_second.append(problem, r2.suffix(j+1));
+			r1_new_size = r1.size() - l1;
+			r2_new_size = r2.size() + l1;
+			break;
+
+		case CROSS_EXCHANGE:
+			if (r1 == r2)
+				return false;
+			r2.segment(j, j+l2-1, _middle);
+			_first.concatenate(problem, r1.prefix(i-1), _middle);
+			_first.append(problem, r1.suffix(i+l1));
+			r1.segment(i, i+l1-1, _middle);
+			_second.concatenate(problem, r2.prefix(j-1), _middle);
+			_second.append(problem, r2.suffix(j+l2));
+			r1_new_size = r1.size() - l1 + l2;
+			r2_new_size = r2.size() - l2 + l1;
+			break;
+
+		default:
+			return false;
+		}
+
+		if (!_first.feasible || !_second.feasible || _first.load > capacity || _second.load > capacity)
+			return false;
+		feasible = true;
+		delta = solution.costDelta(_first.distance + _second.distance - r1.travelDistance() - r2.travelDistance(), r1, r1_new_size, r2, r2_new_size);
+		return true;
+	}
+
+
+
+	public boolean apply(VRPTWSolution solution) {
+		if (!feasible)
+			return false;
+
+		int n1 = 0, n2 = 0;
+		_buffer1 = ensureLength(_buffer1, r1.size() + r2.size());
+		_buffer2 = ensureLength(_buffer2, r1.size() + r2.size());
+
+		switch (type) {
+		case TWO_OPT_STAR:
+			n1 = copy(r1, 0, i, _buffer1, n1);
+			n1 = copy(r2, j+1, r2.size()-1, _buffer1, n1);
+			n2 = copy(r2, 0, j, _buffer2, n2);
+			n2 = copy(r1, i+1, r1.size()-1, _buffer2, n2);
+			break;
+
+		case OR_OPT:
+			if (r1 == r2) {
+				if (j < i) {
+					n1 = copy(r1, 0, j, _buffer1, n1);
+					n1 = copy(r1, i, i+l1-1, _buffer1, n1);
+					n1 = copy(r1, j+1, i-1, _buffer1, n1);
+					n1 = copy(r1, i+l1, r1.size()-1, _buffer1, n1);
+				} else {
+					n1 = copy(r1, 0, i-1, _buffer1, n1);
+					n1 = copy(r1, i+l1, j, _buffer1, n1);
+					n1 = copy(r1, i, i+l1-1, _buffer1, n1);
+					n1 = copy(r1, j+1, r1.size()-1, _buffer1, n1);
+				}
+				return r1.rebuild(_buffer1, n1);
+			}
+			n1 = copy(r1, 0, i-1, _buffer1, n1);
+			n1 = copy(r1, i+l1, r1.size()-1, _buffer1, n1);
+			n2 = copy(r2, 0, j, _buffer2, n2);
+			n2 = copy(r1, i, i+l1-1, _buffer2, n2);
+			n2 = copy(r2, j+1, r2.size()-1, _buffer2, n2);
+			break;
+
+		case CROSS_EXCHANGE:
+			n1 = copy(r1, 0, i-1, _buffer1, n1);
+			n1 = copy(r2, j, j+l2-1, _buffer1, n1);
+			n1 = copy(r1, i+l1, r1.size()-1, _buffer1, n1);
+			n2 = copy(r2, 0, j-1, _buffer2, n2);
+			n2 = copy(r1, i, i+l1-1, _buffer2, n2);
+			n2 = copy(r2, j+l2, r2.size()-1, _buffer2, n2);
+			break;
+		}
+
+		boolean ok = r1.rebuild(_buffer1, n1) & r2.rebuild(_buffer2, n2);
+		if (n1 <= 2)
+			solution.removeRoute(r1);
+		if (n2 <= 2)
+			solution.removeRoute(r2);
+		return ok;
+	}
+
+	private static int copy(VRPTWRoute route, int from_idx, int to_idx, int[] out, int n) {
+		for (int k=from_idx; k<=to_idx; k++)
+			out[n++] = route.getCustomerID(k);
+		return n;
+	}
+
+	private static int[] ensureLength(int[] buffer, int length) {
+		return (buffer.length >= length) ? buffer : new int[length];
+	}
+
+}
@@ -0,0 +1,178 @@
+package vrptw;
+
+import java.util.SplittableRandom;
+
+public class VRPTWOperatorSelector {
+
+	static final String[] NAMES = { "relocate", "orig", "exchange", "2-opt*", "or-opt", "cross" };
+
+	boolean adaptive;
+	double[] _weights;
+	double _total_weight;
+
+	long[] _calls;
+	long[] _accepted;
+	long[] _improved;
+	double[] _gain;
+	long[] _nanos;
+
+
+	double[] _window_gain;
+	long[] _window_nanos;
+	int _window_calls;
+
+	public VRPTWOperatorSelector(boolean adaptive) {
+		int n = NAMES.length;
+		this.adaptive = adaptive;
+		_weights = new double[n];
+		_calls = new long[n];
+		_accepted = new long[n];
+		_improved = new long[n];
+		_gain = new double[n];
+		_nanos = new long[n];
+		_window_gain = new double[n];
+		_window_nanos = new long[n];
+		if (adaptive) {
+			for (int i=0; i<n; i++)
+				_weights[i] = 1;
+			_total_weight = n;
+		} else {
+			_weights[VRPTWSolverThread.RELOCATE] = 1;
+			_total_weight = 1;
+		}
+	}
+
+	public int select(SplittableRandom random) {
+		if (!adaptive)
+			return VRPTWSolverThread.RELOCATE;
+		double r = random.nextDouble() * _total_weight;
+		for (int i=0; i<_weights.length-1; i++) {
+			r -= _weights[i];
+			if (r < 0)
+				return i;
+		}
+		return _weights.length-1;
+	}
+
+
+	public void record(int operator, boolean accepted, double gain, long nanos) {
+		_calls[operator]++;
+		_nanos[operator] += nanos;
+		_window_nanos[operator] += nanos;
+		if (accepted) {
+			_accepted[operator]++;
+			if (gain > 0)
+				_improved[operator]++;
+			_gain[operator] += gain;
+			_window_gain[operator] += gain;
+		}
+
+		if (adaptive && ++_window_calls == VRPTWParameters.operator_window)
+			update();
+	}
+
+
+
+	private void update() {
+		double best_rate = 0;
+		for (int i=0; i<_weights.length; i++)
+			if (_window_nanos[i] > 0)
+				best_rate = Math.max(best_rate, _window_gain[i] / _window_nanos[i]);
+
+		if (best_rate > 0) {
+			_total_weight = 0;
+			for (int i=0; i<_weights.length; i++) {
+				if (_window_nanos[i] > 0) {
+					double score = Math.max(_window_gain[i] / _window_nanos[i], 0) / best_rate;
+					_weights[i] = (1 - VRPTWParameters.operator_reaction) * _weights[i] + VRPTWParameters.operator_reaction * score;
+				}
+				_weights[i] = Math.max(_weights[i], VRPTWParameters.operator_min_weight);
+				_total_weight += _weights[i];
+			}
+		}
+
+		for (int i=0; i<_weights.length; i++) {
+			_window_gain[i] = 0;
+			_window_nanos[i] = 0;
+		}
+		_window_calls = 0;
+	}
+
+
+	public void merge(VRPTWOperatorSelector other) {
+		for (int i=0; i<_weights.length; i++) {
+			_calls[i] += other._calls[i];
+			_accepted[i] += other._accepted[i];
+			_improved[i] += other._improved[i];
+			_gain[i] += other._gain[i];
+			_nanos[i] += other._nanos[i];
+			_weights[i] += other._weights[i];
+		}
+	}
+
+	double[] getWeights() {
+		return _weights.clone();
+	}
+
+	void setWeights(double[] weights) {
+		_total_weight = 0;
+		for (int i=0; i<_weights.length && i<weights.length; i++)
+			_weights[i] = weights[i];
+		for (double w : _weights)
+			_total_weight += w;
+	}
+
+	void checkpoint(VRPTWCheckpoint.Worker state) {
+		state.weights = getWeights();
+		state.calls = _calls.clone();
+		state.accepted = _accepted.clone();
+		state.improved = _improved.clone();
+		state.gain = _gain.clone();
+		state.nanos = _nanos.clone();
+	}
+
+	void restore(VRPTWCheckpoint.Worker state) {
+		setWeights(state.weights);
+		for (int i=0; i<_calls.length && i<state.calls.length; i++) {
+			_calls[i] = state.calls[i];
+			_accepted[i] = state.accepted[i];
+			_improved[i] = state.improved[i];
+			_gain[i] = state.gain[i];
+			_nanos[i] = state.nanos[i];
+		}
+	}
+
+	public long getAccepted() {
+		long accepted = 0;
+		for (long a : _accepted)
+			accepted += a;
+		return accepted;
+	}
+
+	public long getCalls(int operator) {
+		return _calls[operator];
+	}
+
+	public double getWeight(int operator) {
+		return _weights[operator] / _total_weight;
+	}
+
+
+	public String summary() {
+		double total_weight = 0;
+		for (double w : _weights)
+			total_weight += w;
+
+		StringBuilder description = new StringBuilder();
+		for (int i=0; i<NAMES.length; i++) {
+			description.append("Operatore ").append(NAMES[i])
+				.append(": chiamate=").append(_calls[i])
+				.append(", accettate=").append(_accepted[i])
+				.append(", miglioramenti=").append(_improved[i])
+				.append(", guadagno=").append(Math.round(_gain[i]))
+				.append(", tempo=").append(_nanos[i] / 1000000).append("ms")
+				.append(", peso=").append(Math.round(100 * _weights[i] / total_weight)).append("%\n");
+		}
+		return description.toString();
+	}
+}
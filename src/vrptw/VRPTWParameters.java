@@ -21,4 +21,55 @@ public class VRPTWParameters {
 
 	static final double delta = 0.50; 
 
+	
+	static final VRPTWTopology topology = VRPTWTopology.RING;
+	
+	
+	static final int migration_interval = 0;
+
+	
+	static final int neighbors = 20;
+
+	
+	static final boolean adaptive_operators = true;
+	
+	
+	static final int operator_window = 1000;
+	
+	
+	static final double operator_reaction = 0.2;
+	
+	
+	static final double operator_min_weight = 0.05;
+
+	
+	static final int speculative_batch = 1;
+
+	
+	static final boolean jmx = true;
+	
+	
+	static final int metrics_log_interval = 0;
+	
+	
+	static final int jfr_move_sampling = 1024;
+	
+	
+	static final int checkpoint_interval = 1;
+	
+	
+	static final String instance_cache = "cache";
+	
+	
+	static final String instance_path = "problems";
+	
+	
+	static final boolean construction_portfolio = true;
+	
+	
+	static final boolean construction_seeding = true;
+	
+	
+	static final double construction_acceptance = 0;
+
 }
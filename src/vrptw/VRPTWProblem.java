@@ -1,9 +1,7 @@
 package vrptw;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.LinkedList;
 
 
@@ -16,9 +14,11 @@ import java.util.LinkedList;
 
 public class VRPTWProblem {
 
+
 	String instance_name;
 	double distance;
 	double vehicleCapacity; 
+	int fleetSize;
 	
 	
 	double bestKnownDistance;
@@ -29,6 +29,22 @@ public class VRPTWProblem {
 	int optimumVehicles;
 	
 	LinkedList<VRPTWCustomer> customers;
+	VRPTWCustomer warehouse;
+	
+	
+	final int dimension;
+	final VRPTWCustomer[] customer_table;
+	final double[] positions_x;
+	final double[] positions_y;
+	final double[] demands;
+	final double[] ready_times;
+	final double[] due_dates;
+	final double[] service_times;
+	final double[] distances;
+	
+	
+	final int neighbor_k;
+	final int[] neighbors;
 	
 	
 
@@ -37,42 +53,91 @@ public class VRPTWProblem {
 
 
 
+	public VRPTWProblem(String name) {
+		this(load(name));
+	}
+	
 	public VRPTWProblem(String name, double capacity) {
-		instance_name = name;
+		this(load(name), capacity);
+	}
+	
+	VRPTWProblem(VRPTWInstance instance) {
+		this(instance, capacityOf(instance));
+	}
+	
+	VRPTWProblem(VRPTWInstance instance, double capacity) {
+		instance_name = instance.name;
 		vehicleCapacity = capacity;
-		bestKnownDistance = 0;
-		bestKnownVehicles = 0;
-		optimumDistance = 0;
-		optimumVehicles = 0;
+		fleetSize = instance.vehicles;
+		bestKnownDistance = instance.best_distance;
+		bestKnownVehicles = instance.best_vehicles;
+		optimumDistance = instance.optimum_distance;
+		optimumVehicles = instance.optimum_vehicles;
+		
 		
+		dimension = instance.dimension;
+		positions_x = instance.positions_x;
+		positions_y = instance.positions_y;
+		demands = instance.demands;
+		ready_times = instance.ready_times;
+		due_dates = instance.due_dates;
+		service_times = instance.service_times;
 		
 		customers = new LinkedList<VRPTWCustomer>();
-		try{
-			
-			
-			FileInputStream fstream = new FileInputStream("problems/"+instance_name);
-			DataInputStream in = new DataInputStream(fstream);
-			BufferedReader br = new BufferedReader(new InputStreamReader(in));
-			String strLine;
-	
-			while ((strLine = br.readLine()) != null)   { 
-				String[] data = strLine.split("\t");
-				if (data[0].equals("Best")){
-					bestKnownDistance = Double.parseDouble(data[1]);
-					bestKnownVehicles = Integer.parseInt(data[2]);
-				} else if (data[0].equals("Optimal")) {
-					optimumDistance = Double.parseDouble(data[1]);
-					optimumVehicles = Integer.parseInt(data[2]);
-				} else {
-					VRPTWCustomer customer = new VRPTWCustomer(Integer.parseInt(data[0]), Double.parseDouble(data[1]), Double.parseDouble(data[2]), Double.parseDouble(data[3]), Double.parseDouble(data[4]), Double.parseDouble(data[5]), Double.parseDouble(data[6]));
-					customers.add(customer);
-				}
-			}
-			in.close(); 
-		} catch (Exception e){
-			System.err.println("Error: " + e.getMessage());
+		customer_table = new VRPTWCustomer[dimension];
+		for (int id : instance.ids) {
+			VRPTWCustomer customer = new VRPTWCustomer(id, positions_x[id], positions_y[id], demands[id], ready_times[id], due_dates[id], service_times[id], id == instance.depot);
+			customers.add(customer);
+			customer_table[id] = customer;
+		}
+		warehouse = customer_table[instance.depot];
+		
+		if (!instance.isDerived(VRPTWParameters.neighbors))
+			instance.derive(VRPTWParameters.neighbors);
+		distances = instance.distances;
+		neighbor_k = instance.neighbor_k;
+		neighbors = instance.neighbors;
+	}
+	
+	private static double capacityOf(VRPTWInstance instance) {
+		if (instance.capacity <= 0)
+			throw new IllegalArgumentException("l'istanza " + instance.name + " non specifica la capacità dei veicoli");
+		return instance.capacity;
+	}
+	
+	private static VRPTWInstance load(String name) {
+		try {
+			return VRPTWInstanceCache.load(name);
+		} catch (IOException e) {
+			throw new UncheckedIOException("impossibile caricare l'istanza " + name, e);
 		}
 	}
+	
+	
+	public int getNeighbor(int customer_id, int rank) {
+		return neighbors[customer_id*neighbor_k + rank];
+	}
+	
+	public int getNeighborhoodSize() {
+		return neighbor_k;
+	}
+	
+	public double distance(int a_id, int b_id) {
+		return distances[a_id*dimension + b_id];
+	}
+	
+	public double distance(VRPTWCustomer a, VRPTWCustomer b) {
+		return distances[a._id*dimension + b._id];
+	}
+	
+	
+	public double travelTime(int a_id, int b_id) {
+		return distances[a_id*dimension + b_id];
+	}
+	
+	public double travelTime(VRPTWCustomer a, VRPTWCustomer b) {
+		return distances[a._id*dimension + b._id];
+	}
 
 	
 
@@ -89,11 +154,9 @@ public class VRPTWProblem {
 	}
 	
 	public VRPTWCustomer getCustomer(int customerid) {
-		for (VRPTWCustomer c : customers)
-			if (c._id == customerid)
-				return c;
-		return null;
-		
+		if (customerid < 0 || customerid >= dimension)
+			return null;
+		return customer_table[customerid];
 	}
 	public int getNumberOfCustomers() {
 		return customers.size();
@@ -103,6 +166,10 @@ public class VRPTWProblem {
 		return vehicleCapacity;
 	}
 	
+	public int getFleetSize() {
+		return fleetSize;
+	}
+	
 	public int getCurrentBestVehicles() {
 		return bestKnownVehicles;
 	}
@@ -120,6 +187,6 @@ public class VRPTWProblem {
 	}
 	
 	public VRPTWCustomer getWarehouse() {
-		return customers.element();
+		return warehouse;
 	}
 }
\ No newline at end of file
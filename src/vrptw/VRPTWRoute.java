@@ -1,65 +1,132 @@
 package vrptw;
 
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.ListIterator;
 
 public class VRPTWRoute {
 
-	LinkedList<VRPTWCustomer> customers;
+	static final int INITIAL_LENGTH = 16;
+	static final int SHORT_SEGMENT = 4;
+	
+	VRPTWProblem _problem;
 	VRPTWCustomer _warehouse;
+	VRPTWSolution _owner;
+	
+	
+	int[] _ids;
+	double[] _arrival;
+	double[] _start;
+	
+	
+	double[] _slack;
+	int _size;
+	
+	
+	VRPTWSegment[] _prefix;
+	VRPTWSegment[] _suffix;
+	boolean _segments_valid;
+	VRPTWSegment[][] _table;
+	boolean _table_valid;
+	
 	double _initial_capacity;
 	double _capacity;
 	double _travel_distance;
 	
-	public VRPTWRoute(VRPTWCustomer warehouse, double initial_capacity) {
-		customers = new LinkedList<VRPTWCustomer>();
-		_warehouse = warehouse;
-		_capacity = _initial_capacity = initial_capacity;
+	public VRPTWRoute(VRPTWProblem problem) {
+		_problem = problem;
+		_warehouse = problem.getWarehouse();
+		_capacity = _initial_capacity = problem.getVehicleCapacity();
 		_travel_distance = 0;
 		
-		customers.add(warehouse.clone());	
-		customers.add(warehouse.clone());	
+		_ids = new int[INITIAL_LENGTH];
+		_arrival = new double[INITIAL_LENGTH];
+		_start = new double[INITIAL_LENGTH];
+		_slack = new double[INITIAL_LENGTH];
+		
+		_ids[0] = _ids[1] = _warehouse._id;
+		_start[0] = _start[1] = problem.ready_times[_warehouse._id];
+		_size = 2;
+		updateSlack(1);
+	}
+	
+	public VRPTWRoute(VRPTWRoute other) {
+		_problem = other._problem;
+		_warehouse = other._warehouse;
+		_initial_capacity = other._initial_capacity;
+		_capacity = other._capacity;
+		_travel_distance = other._travel_distance;
+		
+		_ids = Arrays.copyOf(other._ids, other._ids.length);
+		_arrival = Arrays.copyOf(other._arrival, other._ids.length);
+		_start = Arrays.copyOf(other._start, other._ids.length);
+		_slack = Arrays.copyOf(other._slack, other._ids.length);
+		_size = other._size;
+	}
+	
+	public void copyFrom(VRPTWRoute other) {
+		if (_ids.length < other._size) {
+			_ids = new int[other._ids.length];
+			_arrival = new double[other._ids.length];
+			_start = new double[other._ids.length];
+			_slack = new double[other._ids.length];
+		}
+		System.arraycopy(other._ids, 0, _ids, 0, other._size);
+		System.arraycopy(other._arrival, 0, _arrival, 0, other._size);
+		System.arraycopy(other._start, 0, _start, 0, other._size);
+		System.arraycopy(other._slack, 0, _slack, 0, other._size);
+		_size = other._size;
+		
+		_capacity = other._capacity;
+		_travel_distance = other._travel_distance;
+		_segments_valid = false;
+		_table_valid = false;
 	}
 	
 	public boolean addCustomer(VRPTWCustomer customer, int prev_customer_idx, int next_customer_idx) {
 		if (next_customer_idx - prev_customer_idx != 1)
-			return false; 
+			return false;
 		
-		if (_capacity < customer._demand)
+		int c = customer._id;
+		if (_capacity < _problem.demands[c])
 			return false;
 		
-		VRPTWCustomer prev_customer = customers.get(prev_customer_idx);
-		VRPTWCustomer next_customer = customers.get(next_customer_idx);
+		int prev_customer = _ids[prev_customer_idx];
+		int next_customer = _ids[next_customer_idx];
 		
-		double distance_prev_next = VRPTWUtils.distance(prev_customer, next_customer);
-		double distance_prev_c = VRPTWUtils.distance(prev_customer, customer);
-		double distance_c_next = VRPTWUtils.distance(customer, next_customer);		
+		double distance_prev_next = _problem.distance(prev_customer, next_customer);
+		double distance_prev_c = _problem.distance(prev_customer, c);
+		double distance_c_next = _problem.distance(c, next_customer);
 		
 		
-		double customer_arrival = prev_customer.getCompletedTime() + distance_prev_c;
-		double customer_start = Math.max(customer.getStartTimeWindow(), customer_arrival);
+		double customer_arrival = getCompletedTime(prev_customer_idx) + distance_prev_c;
+		double customer_start = Math.max(_problem.ready_times[c], customer_arrival);
 		
-		double next_customer_new_arrival = customer_start + customer.getServiceTime() + distance_c_next;
+		double next_customer_new_arrival = customer_start + _problem.service_times[c] + distance_c_next;
 		
-		double push_forward_time = next_customer_new_arrival - next_customer.getArrivalTime();
-
-		if ( (customer_arrival <= customer.getEndTimeWindow()) && push_forward_keep_feasibility(next_customer_idx, push_forward_time)) {
+		double push_forward_time = next_customer_new_arrival - _arrival[next_customer_idx];
+		
+		if ( (customer_arrival <= _problem.due_dates[c]) && push_forward_keep_feasibility(next_customer_idx, push_forward_time)) {
 			
-
-			customer.setArrivalTime( customer_arrival );
-			customers.add(next_customer_idx, customer);
+			if (_owner != null)
+				_owner.routeChanging(this);
+			int old_size = _size;
+			double old_distance = _travel_distance;
+			
+			insertAt(next_customer_idx, c);
+			setArrivalTime(next_customer_idx, customer_arrival);
 
 			
 			int i = next_customer_idx+1;
-			while ( (i<customers.size()) && push_forward_time > 0) {
-				double new_arrival = customers.get(i).getArrivalTime() + push_forward_time;
-				double old_start_time = customers.get(i).getActualStart();
-				customers.get(i).setArrivalTime( new_arrival );
+			while ( (i<_size) && push_forward_time > 0) {
+				double new_arrival = _arrival[i] + push_forward_time;
+				double old_start_time = _start[i];
+				setArrivalTime(i, new_arrival);
 				
 				
-				push_forward_time = customers.get(i).getActualStart() - old_start_time;
+				push_forward_time = _start[i] - old_start_time;
 				i++;
 			}
+			updateSlack(i-1);
 
 			
 			_travel_distance -= distance_prev_next;
@@ -67,7 +134,10 @@ public class VRPTWRoute {
 			_travel_distance += distance_prev_c + distance_c_next;
 			
 			
-			_capacity -= customer._demand;
+			_capacity -= _problem.demands[c];
+			
+			if (_owner != null)
+				_owner.routeChanged(this, old_size, old_distance);
 			return true;
 		}
 		return false;
@@ -76,134 +146,253 @@ public class VRPTWRoute {
 
 	public boolean addCustomer(VRPTWCustomer customer) {
 		
-		return addCustomer(customer, customers.size()-2, customers.size()-1);
+		return addCustomer(customer, _size-2, _size-1);
 	}
 	
 	
 	public void removeCustomer(VRPTWCustomer customer) {
 
 		
-		int customer_idx = customers.indexOf(customer);
+		int customer_idx = locate(customer._id);
 		if (customer_idx == -1)
 			return;
 		
-		VRPTWCustomer prev_customer = customers.get(customer_idx-1);
-		VRPTWCustomer next_customer = customers.get(customer_idx+1);
+		if (_owner != null)
+			_owner.routeChanging(this);
+		int old_size = _size;
+		double old_distance = _travel_distance;
+		
+		int prev_customer = _ids[customer_idx-1];
+		int next_customer = _ids[customer_idx+1];
 		
-		double distance_prev_next = VRPTWUtils.distance(prev_customer, next_customer);
-		double distance_prev_c = VRPTWUtils.distance(prev_customer, customer);
-		double distance_c_next = VRPTWUtils.distance(customer, next_customer);		
+		double distance_prev_next = _problem.distance(prev_customer, next_customer);
+		double distance_prev_c = _problem.distance(prev_customer, customer._id);
+		double distance_c_next = _problem.distance(customer._id, next_customer);
 		
 		
-		double next_customer_arrival = prev_customer.getCompletedTime() + distance_prev_next;
-		double push_backward_time = next_customer.getArrivalTime() - next_customer_arrival;
+		double next_customer_arrival = getCompletedTime(customer_idx-1) + distance_prev_next;
+		double push_backward_time = _arrival[customer_idx+1] - next_customer_arrival;
 
 		
 		int i = customer_idx+1;
-		while ( (i<customers.size()) && push_backward_time > 0) {
-			double old_actual_start = customers.get(i).getActualStart();
-			double new_actual_arrival = customers.get(i).getArrivalTime() - push_backward_time;
-			customers.get(i).setArrivalTime( new_actual_arrival );
+		while ( (i<_size) && push_backward_time > 0) {
+			double old_actual_start = _start[i];
+			double new_actual_arrival = _arrival[i] - push_backward_time;
+			setArrivalTime(i, new_actual_arrival);
 			
 			
-			push_backward_time = old_actual_start - customers.get(i).getActualStart();
+			push_backward_time = old_actual_start - _start[i];
 			i++;
 		}
 		
 		
 		_travel_distance += distance_prev_next - distance_prev_c - distance_c_next;
-		_capacity += customer._demand;
-
+		_capacity += _problem.demands[customer._id];
 		
-		customers.remove(customer);
-	}
 		
-
-	
-	
-	public boolean push_forward_keep_feasibility(int customer_idx, double push_forward_time) {
-		if (push_forward_time < 0)
-			return true;	
+		removeAt(customer_idx);
+		updateSlack(i-2);
 		
-		int i = customer_idx;
-		while ( (i<customers.size()) && (customers.get(i).getArrivalTime() + push_forward_time < customers.get(i).getEndTimeWindow()) ) {
-			
-			push_forward_time -= customers.get(i).getWaiting();
-			if (push_forward_time <= 0)
-				
-				return true;	
-			i++;
-		}
-		if ( i==customers.size() )
-			return true;
-
-		return false;
+		if (_owner != null)
+			_owner.routeChanged(this, old_size, old_distance);
 	}
-
 	
-	public LinkedList<VRPTWCustomer> candidate_customers(LinkedList<VRPTWCustomer> unallocated_pool) {
+	
+	public boolean canInsert(int customer_id, int prev_customer_idx) {
+		if (_capacity < _problem.demands[customer_id])
+			return false;
 		
+		int next_customer_idx = prev_customer_idx+1;
+		double customer_arrival = getCompletedTime(prev_customer_idx) + _problem.travelTime(_ids[prev_customer_idx], customer_id);
+		if (customer_arrival > _problem.due_dates[customer_id])
+			return false;
 		
+		double customer_start = Math.max(_problem.ready_times[customer_id], customer_arrival);
+		double push_forward_time = customer_start + _problem.service_times[customer_id] + _problem.travelTime(customer_id, _ids[next_customer_idx]) - _arrival[next_customer_idx];
+		return push_forward_keep_feasibility(next_customer_idx, push_forward_time);
+	}
+	
+	public double removalDistanceDelta(int customer_idx) {
+		int prev_customer = _ids[customer_idx-1];
+		int customer = _ids[customer_idx];
+		int next_customer = _ids[customer_idx+1];
+		return _problem.distance(prev_customer, next_customer) - _problem.distance(prev_customer, customer) - _problem.distance(customer, next_customer);
+	}
+	
+	public double insertionDistanceDelta(int customer_id, int prev_customer_idx) {
+		int prev_customer = _ids[prev_customer_idx];
+		int next_customer = _ids[prev_customer_idx+1];
+		return _problem.distance(prev_customer, customer_id) + _problem.distance(customer_id, next_customer) - _problem.distance(prev_customer, next_customer);
+	}
 		
+
+	
+	
+	public boolean rebuild(int[] customer_ids, int size) {
+		if (_owner != null)
+			_owner.routeChanging(this);
+		int old_size = _size;
+		double old_distance = _travel_distance;
+		
+		if (_ids.length < size) {
+			int length = Math.max(_ids.length << 1, size);
+			_ids = new int[length];
+			_arrival = new double[length];
+			_start = new double[length];
+			_slack = new double[length];
+		}
+		System.arraycopy(customer_ids, 0, _ids, 0, size);
+		_size = size;
+		_segments_valid = false;
+		_table_valid = false;
 		
 		
+		boolean feasible = true;
+		_capacity = _initial_capacity - _problem.demands[_ids[0]];
+		_travel_distance = 0;
+		_arrival[0] = 0;
+		_start[0] = _problem.ready_times[_ids[0]];
+		for (int i=1; i<_size; i++) {
+			int prev = _ids[i-1], c = _ids[i];
+			_arrival[i] = getCompletedTime(i-1) + _problem.travelTime(prev, c);
+			_start[i] = Math.max(_problem.ready_times[c], _arrival[i]);
+			if (_arrival[i] > _problem.due_dates[c])
+				feasible = false;
+			_travel_distance += _problem.distance(prev, c);
+			_capacity -= _problem.demands[c];
+		}
+		if (_capacity < 0)
+			feasible = false;
+		updateSlack(_size-1);
 		
+		if (_owner != null)
+			_owner.routeChanged(this, old_size, old_distance);
+		return feasible;
+	}
+
+	
+	public void ensureSegments() {
+		if (_segments_valid)
+			return;
+		if (_prefix == null || _prefix.length < _size) {
+			int length = Math.max(_ids.length, _size);
+			_prefix = growSegments(_prefix, length);
+			_suffix = growSegments(_suffix, length);
+		}
 		
+		_prefix[0].setNode(_problem, _ids[0]);
+		for (int i=1; i<_size; i++) {
+			_prefix[i].set(_prefix[i-1]);
+			_prefix[i].appendNode(_problem, _ids[i]);
+		}
+		_suffix[_size-1].setNode(_problem, _ids[_size-1]);
+		for (int i=_size-2; i>=0; i--) {
+			_suffix[i].set(_suffix[i+1]);
+			_suffix[i].prependNode(_problem, _ids[i]);
+		}
+		_segments_valid = true;
+	}
+	
+	private static VRPTWSegment[] growSegments(VRPTWSegment[] segments, int length) {
+		int old_length = (segments == null) ? 0 : segments.length;
+		segments = (segments == null) ? new VRPTWSegment[length] : Arrays.copyOf(segments, length);
+		for (int i=old_length; i<length; i++)
+			segments[i] = new VRPTWSegment();
+		return segments;
+	}
+	
+	
+	public VRPTWSegment prefix(int idx) {
+		return _prefix[idx];
+	}
+	
+	
+	public VRPTWSegment suffix(int idx) {
+		return _suffix[idx];
+	}
+	
+	
+	public void ensureSegmentTable() {
+		ensureSegments();
+		if (_table_valid)
+			return;
+		int levels = 32 - Integer.numberOfLeadingZeros(_size);
+		if (_table == null || _table.length < levels || _table[0].length < _size) {
+			VRPTWSegment[][] table = new VRPTWSegment[Math.max(levels, (_table == null) ? 0 : _table.length)][];
+			for (int k=0; k<table.length; k++)
+				table[k] = growSegments((_table != null && k < _table.length) ? _table[k] : null, Math.max(_ids.length, _size));
+			_table = table;
+		}
 		
+		for (int i=0; i<_size; i++)
+			_table[0][i].setNode(_problem, _ids[i]);
+		for (int k=1; k<levels; k++) {
+			int half = 1 << (k-1);
+			for (int i=0; i+(1 << k)<=_size; i++)
+				_table[k][i].concatenate(_problem, _table[k-1][i], _table[k-1][i+half]);
+		}
+		_table_valid = true;
+	}
+	
+	
+	public void segment(int from_idx, int to_idx, VRPTWSegment out) {
+		if (from_idx == 0) {
+			out.set(_prefix[to_idx]);
+			return;
+		}
+		if (to_idx == _size-1) {
+			out.set(_suffix[from_idx]);
+			return;
+		}
+		if (!_table_valid || to_idx - from_idx < SHORT_SEGMENT) {
+			out.setNode(_problem, _ids[from_idx]);
+			for (int i=from_idx+1; i<=to_idx; i++)
+				out.appendNode(_problem, _ids[i]);
+			return;
+		}
+		int k = 31 - Integer.numberOfLeadingZeros(to_idx - from_idx + 1);
+		out.set(_table[k][from_idx]);
+		for (int i=from_idx + (1 << k); i<=to_idx; i+=(1 << k)) {
+			k = 31 - Integer.numberOfLeadingZeros(to_idx - i + 1);
+			out.append(_problem, _table[k][i]);
+		}
+	}
+	
+	
+	
+	public boolean push_forward_keep_feasibility(int customer_idx, double push_forward_time) {
+		if (push_forward_time <= 0)
+			return true;
 		
+		return push_forward_time < _slack[customer_idx];
+	}
+	
+	
+	
+	private void updateSlack(int last_changed_idx) {
+		int i = last_changed_idx;
+		double slack = (i+1 < _size) ? _slack[i+1] : Double.MAX_VALUE;
+		while (i >= 0) {
+			slack = Math.min(_problem.due_dates[_ids[i]] - _arrival[i], getWaiting(i) + slack);
+			_slack[i] = slack;
+			i--;
+		}
+	}
+	
+	
+	public LinkedList<VRPTWCustomer> candidate_customers(VRPTWCustomerPool unallocated_pool) {
 		LinkedList<VRPTWCustomer> out = new LinkedList<VRPTWCustomer>();
-		ListIterator<VRPTWCustomer> itr = null;
 		
-		
-		double min_cost = Double.MAX_VALUE;
-		
-		VRPTWCustomer smaller_start_time_customer = null;
-		itr = unallocated_pool.listIterator();
-		while(itr.hasNext()) {
-			VRPTWCustomer c = itr.next();
-			if (c.getStartTimeWindow() < min_cost) {
-				smaller_start_time_customer = c;
-				min_cost = c.getStartTimeWindow();
-			}
-		}
+		VRPTWCustomer smaller_start_time_customer = unallocated_pool.first(VRPTWCustomerPool.EARLIEST, null, null);
 		if (smaller_start_time_customer != null)
 			out.add(smaller_start_time_customer);
 		
-
-		
-		
-		min_cost = Double.MAX_VALUE;
-		
-		VRPTWCustomer tight_window_customer = null;
-		itr = unallocated_pool.listIterator();
-		while(itr.hasNext()) {
-			VRPTWCustomer c = itr.next();
-			double cost = 1000 * (c.getEndTimeWindow() - c.getStartTimeWindow()) - VRPTWUtils.distance(c, _warehouse);
-			
-			if ( (cost < min_cost) && (c != smaller_start_time_customer) ) {
-				tight_window_customer = c;
-				min_cost = cost;
-			}
-		}
+		VRPTWCustomer tight_window_customer = unallocated_pool.first(VRPTWCustomerPool.TIGHTEST, smaller_start_time_customer, null);
 		if (tight_window_customer != null)
 			out.add(tight_window_customer);
 		
-		
-		
-		double max_cost = Double.MIN_VALUE;
-		
-		VRPTWCustomer farthest_customer = null;
-		itr = unallocated_pool.listIterator();
-		while(itr.hasNext()) {
-			VRPTWCustomer c = itr.next();
-			double cost = VRPTWUtils.distance(c, _warehouse);
-			
-			if ( (cost > max_cost)  && (c != smaller_start_time_customer) && (c != tight_window_customer) ) {
-				farthest_customer = c;
-				max_cost = cost;
-			}
-		}
-		if (farthest_customer != null)
+		VRPTWCustomer farthest_customer = unallocated_pool.first(VRPTWCustomerPool.FARTHEST, smaller_start_time_customer, tight_window_customer);
+		if (farthest_customer != null && _problem.distance(farthest_customer, _warehouse) > Double.MIN_VALUE)
 			out.add(farthest_customer);
 		
 		return out;
@@ -213,44 +402,134 @@ public class VRPTWRoute {
 	
 	public LinkedList<VRPTWCandidateCustomerInsertion> candidate_insertions(VRPTWCustomer customer) {
 		LinkedList<VRPTWCandidateCustomerInsertion> out = new LinkedList<VRPTWCandidateCustomerInsertion>();
+		VRPTWInsertionEvaluator evaluator = new VRPTWInsertionEvaluator();
+		candidate_insertions(customer, evaluator);
+		for (int k=0; k<evaluator.size(); k++)
+			out.add( new VRPTWCandidateCustomerInsertion(customer, evaluator._positions[k], evaluator._positions[k]+1, evaluator._costs[k]) );
+		return out;
+	}
+	
+	
+	public void candidate_insertions(VRPTWCustomer customer, VRPTWInsertionEvaluator out) {
+		int c = customer._id;
+		if (_capacity < _problem.demands[c])
+			return;
 		
-		if (_capacity < customer._demand)
-			return out;	
+		double ready_time = _problem.ready_times[c];
+		double service_time = _problem.service_times[c];
+		double due_date = _problem.due_dates[c];
 		
-		VRPTWCustomer prev_customer = customers.get(0);
-		double distance_c_next, distance_prev_next, distance_prev_c = VRPTWUtils.distance(prev_customer, customer);
+		int prev_customer = _ids[0];
+		double distance_c_next, distance_prev_next, distance_prev_c = _problem.distance(prev_customer, c);
 		
 		
 		
 		int i = 1;
-		while (i < customers.size()) {
-			VRPTWCustomer next_customer = customers.get(i);
-				
-			distance_prev_next = VRPTWUtils.distance(prev_customer, next_customer);
-			distance_c_next = VRPTWUtils.distance(customer, next_customer);		
+		while (i < _size) {
+			int next_customer = _ids[i];
 			
+			distance_prev_next = _problem.distance(prev_customer, next_customer);
+			distance_c_next = _problem.distance(c, next_customer);
 			
-			double customer_arrival = Math.max(customer.getStartTimeWindow(), prev_customer.getCompletedTime() + distance_prev_c);
 			
-			double next_customer_new_arrival = Math.max(next_customer.getArrivalTime(), customer_arrival + customer.getServiceTime() + distance_c_next);
-			double next_customer_new_arrival_ = customer_arrival + customer.getServiceTime() + distance_c_next;
-
+			double actual_arrival = getCompletedTime(i-1) + distance_prev_c;
+			double customer_arrival = Math.max(ready_time, actual_arrival);
 			
-			double push_forward_time = Math.max(0, next_customer_new_arrival - next_customer.getArrivalTime());
+			double next_customer_new_arrival = Math.max(_arrival[i], customer_arrival + service_time + distance_c_next);
 			
 			
-			double distance_increase = distance_prev_c + distance_c_next - distance_prev_next;
-			out.add( new VRPTWCandidateCustomerInsertion(customer, i-1, i, distance_increase) );
+			double push_forward_time = Math.max(0, next_customer_new_arrival - _arrival[i]);
 			
 			
-			double local_sched_time_increase = push_forward_time - next_customer.getWaiting();
-			out.add( new VRPTWCandidateCustomerInsertion(customer, i-1, i, local_sched_time_increase) );
+			if ( (actual_arrival <= due_date) && push_forward_keep_feasibility(i, push_forward_time) ) {
+				double distance_increase = distance_prev_c + distance_c_next - distance_prev_next;
+				out.add(c, i-1, distance_increase);
+				
+				
+				double local_sched_time_increase = push_forward_time - getWaiting(i);
+				out.add(c, i-1, local_sched_time_increase);
+			}
 			
 			prev_customer = next_customer;
 			distance_prev_c = distance_c_next;
 			i++;
 		}
-		return out;		
+	}
+	
+	
+	private void insertAt(int idx, int customer_id) {
+		if (_size == _ids.length) {
+			int length = _ids.length << 1;
+			_ids = Arrays.copyOf(_ids, length);
+			_arrival = Arrays.copyOf(_arrival, length);
+			_start = Arrays.copyOf(_start, length);
+			_slack = Arrays.copyOf(_slack, length);
+		}
+		System.arraycopy(_ids, idx, _ids, idx+1, _size-idx);
+		System.arraycopy(_arrival, idx, _arrival, idx+1, _size-idx);
+		System.arraycopy(_start, idx, _start, idx+1, _size-idx);
+		System.arraycopy(_slack, idx, _slack, idx+1, _size-idx);
+		_ids[idx] = customer_id;
+		_size++;
+		_segments_valid = false;
+		_table_valid = false;
+	}
+	
+	private void removeAt(int idx) {
+		System.arraycopy(_ids, idx+1, _ids, idx, _size-idx-1);
+		System.arraycopy(_arrival, idx+1, _arrival, idx, _size-idx-1);
+		System.arraycopy(_start, idx+1, _start, idx, _size-idx-1);
+		System.arraycopy(_slack, idx+1, _slack, idx, _size-idx-1);
+		_size--;
+		_segments_valid = false;
+		_table_valid = false;
+	}
+	
+	private void setArrivalTime(int idx, double actual_arrival_time) {
+		int c = _ids[idx];
+		if (actual_arrival_time > _problem.due_dates[c]) {
+			System.err.println("Schedulazione non fattibile! Inserimento al tempo " + actual_arrival_time + " fallito per " + _problem.getCustomer(c));
+			System.exit(1);
+		}
+		_arrival[idx] = actual_arrival_time;
+		_start[idx] = Math.max(_problem.ready_times[c], actual_arrival_time);
+	}
+	
+	int locate(int customer_id) {
+		if (_owner == null)
+			return indexOf(customer_id);
+		return (_owner.routeOf(customer_id) == this) ? _owner._position_of[customer_id] : -1;
+	}
+	
+	public int indexOf(int customer_id) {
+		for (int i=0; i<_size; i++)
+			if (_ids[i] == customer_id)
+				return i;
+		return -1;
+	}
+	
+	public int getCustomerID(int idx) {
+		return _ids[idx];
+	}
+	
+	public VRPTWCustomer getCustomer(int idx) {
+		return _problem.getCustomer(_ids[idx]);
+	}
+	
+	public double getArrivalTime(int idx) {
+		return _arrival[idx];
+	}
+	
+	public double getActualStart(int idx) {
+		return _start[idx];
+	}
+	
+	public double getWaiting(int idx) {
+		return _start[idx] - _arrival[idx];
+	}
+	
+	public double getCompletedTime(int idx) {
+		return _start[idx] + _problem.service_times[_ids[idx]];
 	}
 
 	
@@ -260,9 +539,9 @@ public class VRPTWRoute {
 	
 	
 	public double travelTime() {
-		if (customers.size() == 0)
+		if (_size == 0)
 			return 0;
-		return customers.get(customers.size()-1).getCompletedTime();
+		return getCompletedTime(_size-1);
 	}
 	
 	
@@ -272,28 +551,24 @@ public class VRPTWRoute {
 	
 	
 	public int size() {
-		return customers.size();
+		return _size;
 	}
 	
 	
 	public void show() {
-		
-		for (int c = 0; c<customers.size()-1; c++) {
-			System.out.print(customers.get(c).getID() + " ");
-		}
-		System.out.println(customers.get(customers.size()-1).getID() + ";");
+		System.out.println(toString());
 	}
 	
 	
 	public String toString() {
-		String description = "";
+		StringBuilder description = new StringBuilder();
 		
-		for (int c = 0; c<customers.size()-1; c++) {
-			description += customers.get(c).getID() + " ";
+		for (int c = 0; c<_size-1; c++) {
+			description.append(_ids[c]).append(' ');
 		}
-		description += customers.get(customers.size()-1).getID() + ";";
+		description.append(_ids[_size-1]).append(';');
 		
-		return description;
+		return description.toString();
 	}
 	
 	
@@ -301,23 +576,18 @@ public class VRPTWRoute {
 	
 	public boolean check_compactness() {
 		double difference = 1;
-		ListIterator<VRPTWCustomer> itr = customers.listIterator();
-		VRPTWCustomer prev_customer = itr.next();
-		while(itr.hasNext()) {
-			VRPTWCustomer c = itr.next();
-			double distance = VRPTWUtils.distance(prev_customer, c);
-			difference = Math.abs(prev_customer.getCompletedTime()+distance - c.getArrivalTime());
+		for (int i=1; i<_size; i++) {
+			double distance = _problem.travelTime(_ids[i-1], _ids[i]);
+			difference = Math.abs(getCompletedTime(i-1)+distance - _arrival[i]);
 			if (difference > 0.001)
 				return false;
-
-			prev_customer = c;
 		}
 		return true;
 	}
 
 	
 	public boolean serve(VRPTWCustomer customer) {
-		return customers.contains(customer);
+		return locate(customer._id) != -1;
 	}
 
 }
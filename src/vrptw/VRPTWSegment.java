@@ -0,0 +1,79 @@
+package vrptw;
+
+public class VRPTWSegment {
+
+	int first;
+	int last;
+	double duration;
+	double earliest;
+	double latest;
+	double load;
+	double distance;
+	boolean feasible;
+
+	public void setNode(VRPTWProblem problem, int id) {
+		first = last = id;
+		duration = problem.service_times[id];
+		earliest = problem.ready_times[id];
+		latest = problem.due_dates[id];
+		load = problem.demands[id];
+		distance = 0;
+		feasible = true;
+	}
+
+	public void set(VRPTWSegment other) {
+		first = other.first;
+		last = other.last;
+		duration = other.duration;
+		earliest = other.earliest;
+		latest = other.latest;
+		load = other.load;
+		distance = other.distance;
+		feasible = other.feasible;
+	}
+
+
+	public void concatenate(VRPTWProblem problem, VRPTWSegment a, VRPTWSegment b) {
+		combine(problem, a.first, a.last, a.duration, a.earliest, a.latest, a.load, a.distance, a.feasible,
+				b.first, b.last, b.duration, b.earliest, b.latest, b.load, b.distance, b.feasible);
+	}
+
+	public void append(VRPTWProblem problem, VRPTWSegment b) {
+		concatenate(problem, this, b);
+	}
+
+	public void appendNode(VRPTWProblem problem, int id) {
+		combine(problem, first, last, duration, earliest, latest, load, distance, feasible,
+				id, id, problem.service_times[id], problem.ready_times[id], problem.due_dates[id], problem.demands[id], 0, true);
+	}
+
+	public void prependNode(VRPTWProblem problem, int id) {
+		combine(problem, id, id, problem.service_times[id], problem.ready_times[id], problem.due_dates[id], problem.demands[id], 0, true,
+				first, last, duration, earliest, latest, load, distance, feasible);
+	}
+
+
+
+	private void combine(VRPTWProblem problem,
+			int a_first, int a_last, double a_duration, double a_earliest, double a_latest, double a_load, double a_distance, boolean a_feasible,
+			int b_first, int b_last, double b_duration, double b_earliest, double b_latest, double b_load, double b_distance, boolean b_feasible) {
+
+		double travel = problem.travelTime(a_last, b_first);
+		double delta = a_duration + travel;
+		double waiting = Math.max(b_earliest - delta - a_latest, 0);
+		double time_warp = Math.max(a_earliest + delta - b_latest, 0);
+
+		first = a_first;
+		last = b_last;
+		duration = a_duration + b_duration + travel + waiting;
+		earliest = Math.max(b_earliest - delta, a_earliest) - waiting;
+		latest = Math.min(b_latest - delta, a_latest);
+		load = a_load + b_load;
+		distance = a_distance + b_distance + problem.distance(a_last, b_first);
+		feasible = a_feasible && b_feasible && time_warp <= 0;
+	}
+
+	public String toString() {
+		return "Segment " + first + ".." + last + " duration=" + duration + " start=[" + earliest + " - " + latest + "] load=" + load + " distance=" + distance + (feasible ? "" : " infeasible");
+	}
+}
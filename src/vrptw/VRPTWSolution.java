@@ -3,7 +3,8 @@ package vrptw;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.text.DecimalFormat;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class VRPTWSolution {
@@ -12,7 +13,17 @@ public class VRPTWSolution {
 	VRPTWProblem _problem;
 	double distance;
 	int _max_vehicles;
-	LinkedList<VRPTWRoute> routes;
+	ArrayList<VRPTWRoute> routes;
+	VRPTWUndoJournal _journal;
+	
+	
+	double _total_distance;
+	int[] _size_histogram;
+	int _min_size;
+	
+	
+	VRPTWRoute[] _route_of;
+	int[] _position_of;
 
 	public VRPTWSolution(VRPTWProblem problem) {
 		if (problem == null)
@@ -20,28 +31,67 @@ public class VRPTWSolution {
 
 		_problem = problem;
 		_instance_name = problem.getInstanceName();
-		routes = new LinkedList<VRPTWRoute>();
+		routes = new ArrayList<VRPTWRoute>();
+		
+		_total_distance = 0;
+		_size_histogram = new int[problem.getNumberOfCustomers() + 3];
+		_min_size = Integer.MAX_VALUE;
+		_route_of = new VRPTWRoute[problem.dimension];
+		_position_of = new int[problem.dimension];
 	}
 
 	public double totalTravelDistance() {
-		double _cost = 0;
-		for(int r=0; r<routes.size(); r++) {
-			_cost += routes.get(r).travelDistance();
-		}
-		return _cost;
+		return _total_distance;
 	}
 
 	public double cost() {
-		
-		double d = totalTravelDistance();
-		double c = routes.size();
+		return cost(_total_distance, routes.size(), _min_size);
+	}
+	
+	private double cost(double d, double c, int e_min) {
 		double n = _problem.getNumberOfCustomers();
+		return d + VRPTWParameters.sigma*(c*n + e_min);
+	}
+	
+	
+	
+	public double costDelta(double distance_delta, VRPTWRoute a, int a_new_size, VRPTWRoute b, int b_new_size) {
+		int c = routes.size();
+		
+		int a_old_size = a.size();
+		if (a_new_size <= 2) c--;
+		
+		int b_old_size = 0;
+		if (b != null) {
+			b_old_size = b.size();
+			if (b_new_size <= 2) c--;
+		}
+		
 		int e_min = Integer.MAX_VALUE;
-		for (VRPTWRoute r : routes) {
-			if (r.size() < e_min) e_min = r.size();
+		for (int size=_min_size; size<_size_histogram.length; size++) {
+			int count = _size_histogram[size];
+			if (size == a_old_size) count--;
+			if (b != null && size == b_old_size) count--;
+			if (count > 0) {
+				e_min = size;
+				break;
+			}
 		}
-		return d + VRPTWParameters.sigma*(c*n + e_min);
-
+		if (a_new_size > 2 && a_new_size < e_min) e_min = a_new_size;
+		if (b != null && b_new_size > 2 && b_new_size < e_min) e_min = b_new_size;
+		
+		return cost(_total_distance + distance_delta, c, e_min) - cost();
+	}
+	
+	
+	public double relocateCostDelta(VRPTWRoute src, int customer_idx, VRPTWRoute dst, int prev_customer_idx) {
+		if (src == dst)
+			throw new IllegalArgumentException("relocation within the same route");
+		
+		double distance_delta = src.removalDistanceDelta(customer_idx);
+		distance_delta += dst.insertionDistanceDelta(src.getCustomerID(customer_idx), prev_customer_idx);
+		
+		return costDelta(distance_delta, src, src.size()-1, dst, dst.size()+1);
 	}
 	
 	public void show() { 
@@ -87,13 +137,15 @@ public class VRPTWSolution {
 	}
 	
 	public void addRoute(VRPTWRoute route) {
-		routes.add(route);
+		attachRoute(routes.size(), route);
+		if (_journal != null && _journal.active)
+			_journal.routeAdded(route);
 	}
 	
 	
 	
 	public void addRoute(String route_description) {
-		VRPTWRoute newroute = new VRPTWRoute(_problem.getWarehouse(), _problem.getVehicleCapacity());
+		VRPTWRoute newroute = new VRPTWRoute(_problem);
 		
 		Scanner scanner = new Scanner(route_description);
 		scanner.useDelimiter(" ");
@@ -102,30 +154,127 @@ public class VRPTWSolution {
 		int customerid = Integer.parseInt(scanner.next());
 			VRPTWCustomer customer = _problem.getCustomer(customerid);
 			if (!customer.isWarehouse()) {
-				if (customer.getArrivalTime() != 0) {
+				if (serve(customer) || newroute.serve(customer)) {
 					System.err.println("Cliente già inserito");
 					System.exit(1);
 				}
 				newroute.addCustomer(customer);
 			}
 	    }		
-		routes.add(newroute);
+		addRoute(newroute);
 	}
 
 	public void removeRoute(VRPTWRoute route) {
-		routes.remove(route);
+		int idx = routes.indexOf(route);
+		if (idx == -1)
+			return;
+		detachRoute(idx);
+		if (_journal != null && _journal.active)
+			_journal.routeRemoved(route, idx);
+	}
+	
+	void attachRoute(int idx, VRPTWRoute route) {
+		route._owner = this;
+		routes.add(idx, route);
+		_total_distance += route.travelDistance();
+		countRouteSize(route.size());
+		index(route);
+	}
+	
+	void detachRoute(int idx) {
+		VRPTWRoute route = routes.remove(idx);
+		route._owner = null;
+		_total_distance -= route.travelDistance();
+		uncountRouteSize(route.size());
+	}
+	
+	void restoreRoute(VRPTWRoute route, VRPTWRoute snapshot) {
+		if (route._owner != this) {
+			route.copyFrom(snapshot);
+			return;
+		}
+		double old_distance = route.travelDistance();
+		int old_size = route.size();
+		route.copyFrom(snapshot);
+		routeChanged(route, old_size, old_distance);
+	}
+	
+	void routeChanged(VRPTWRoute route, int old_size, double old_distance) {
+		_total_distance += route.travelDistance() - old_distance;
+		uncountRouteSize(old_size);
+		countRouteSize(route.size());
+		index(route);
+	}
+	
+	private void index(VRPTWRoute route) {
+		for (int i=1; i<route._size-1; i++) {
+			int c = route._ids[i];
+			_route_of[c] = route;
+			_position_of[c] = i;
+		}
+	}
+	
+	private void countRouteSize(int size) {
+		if (size >= _size_histogram.length)
+			_size_histogram = Arrays.copyOf(_size_histogram, size + 1);
+		_size_histogram[size]++;
+		if (size < _min_size)
+			_min_size = size;
+	}
+	
+	private void uncountRouteSize(int size) {
+		_size_histogram[size]--;
+		if (size == _min_size && _size_histogram[size] == 0) {
+			while (_min_size < _size_histogram.length && _size_histogram[_min_size] == 0)
+				_min_size++;
+			if (_min_size == _size_histogram.length)
+				_min_size = Integer.MAX_VALUE;
+		}
+	}
+	
+	
+	public void beginMove() {
+		if (_journal == null)
+			_journal = new VRPTWUndoJournal();
+		_journal.begin();
+	}
+	
+	public void commitMove() {
+		if (_journal != null)
+			_journal.clear();
+	}
+	
+	public void rollbackMove() {
+		if (_journal != null)
+			_journal.rollback(this);
+	}
+	
+	void routeChanging(VRPTWRoute route) {
+		if (_journal != null && _journal.active)
+			_journal.snapshot(route);
+	}
+	
+	public VRPTWRoute routeOf(int customer_id) {
+		VRPTWRoute route = _route_of[customer_id];
+		int idx = _position_of[customer_id];
+		if (route == null || route._owner != this || idx >= route._size || route._ids[idx] != customer_id)
+			return null;
+		return route;
+	}
+	
+	public int positionOf(int customer_id) {
+		return (routeOf(customer_id) != null) ? _position_of[customer_id] : -1;
+	}
+	
+	public boolean serve(VRPTWCustomer customer) {
+		return routeOf(customer._id) != null;
 	}
 	
 	public VRPTWSolution clone() {
 
 		VRPTWSolution clone = new VRPTWSolution(_problem);
 		for (VRPTWRoute route : routes) {
-			VRPTWRoute newRoute = new VRPTWRoute(_problem.getWarehouse(), _problem.getVehicleCapacity());
-			for (VRPTWCustomer customer : route.customers) {
-				if (!customer.isWarehouse())
-					newRoute.addCustomer(customer.clone());
-			}
-			clone.addRoute(newRoute);
+			clone.addRoute(new VRPTWRoute(route));
 		}
 
 		return clone;
@@ -135,17 +284,14 @@ public class VRPTWSolution {
 	public int customers_size() {
 		int tot_cust = 0;
 		for (VRPTWRoute r : routes) {
-			if (r.customers.size() > 2)
-				tot_cust += r.customers.size() - 2;
+			if (r.size() > 2)
+				tot_cust += r.size() - 2;
 		}
 		return tot_cust;
 	}
 	
 	public double getDistance() {
-		double km = 0;
-		for (VRPTWRoute r : routes)
-			km += r._travel_distance;
-		return km;
+		return _total_distance;
 	}
 	
 	public int getVehicles(){
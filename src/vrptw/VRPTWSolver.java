@@ -4,11 +4,16 @@ import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
-import java.util.ListIterator;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
@@ -18,131 +23,268 @@ import vrptw.VRPTWDrawingSolution.DrawingArea;
 
 public class VRPTWSolver {
 	
-	public static void main(String[] args) throws InterruptedException {
+	public static void main(String[] args) throws InterruptedException, IOException {
 		VRPTWProblem problem = new VRPTWProblem("C101", 200);
 		
 		VRPTWSolver solver = new VRPTWSolver();
+		File resume = null;
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("--checkpoint"))
+				solver.setCheckpoint(new File(args[++i]));
+			else if (args[i].equals("--resume"))
+				resume = new File(args[++i]);
+			else
+				throw new IllegalArgumentException("opzione sconosciuta: " + args[i] + " (uso: --checkpoint file --resume file)");
+		}
 		
 		solver.activateDrawingSolutionsMode();
 		System.out.println("Starting optimization.*");
-		final VRPTWSolution solution = solver.resolve(problem);
+		final VRPTWSolution solution;
+		if (resume != null) {
+			if (solver.checkpoint_file == null)
+				solver.setCheckpoint(resume);
+			solution = solver.resume(resume);
+		} else
+			solution = solver.resolve(problem);
 		System.out.println("Finish optimization.");
 		solution.show();
 		solution.checkBestKnownSolutionImproved();
 	}
 
-	private VRPTWSolverThread[] threads;
+	private final VRPTWSolverEngine engine;
 	private int _processors;
 	private boolean debug = false;
 	private boolean draw_solution = false;
+	private boolean verbose = true;
+	private VRPTWTopology topology = VRPTWParameters.topology;
+	private int migration_interval = VRPTWParameters.migration_interval;
+	private int granularity = VRPTWParameters.neighbors;
+	private int speculative_batch = VRPTWParameters.speculative_batch;
+	private boolean construction_portfolio = VRPTWParameters.construction_portfolio;
+	private boolean construction_seeding = VRPTWParameters.construction_seeding;
+	private double construction_acceptance = VRPTWParameters.construction_acceptance;
 	String folder = "frames/";
 	String basename = "Solution";
 	String estensione = ".png";
 	int progressivo = 0;
 	
+	
+	long moves;
+	long cpu_time;
+	long wall_time;
+	VRPTWSolverMetrics metrics;
+	VRPTWBudget.Reason stop_reason = VRPTWBudget.Reason.NONE;
+	File checkpoint_file;
+	private int checkpoint_interval = VRPTWParameters.checkpoint_interval;
+	private int metrics_log_interval = VRPTWParameters.metrics_log_interval;
+	
 	public VRPTWSolver() {
+		this(VRPTWSolverEngine.getShared());
+	}
+	
+	public VRPTWSolver(VRPTWSolverEngine engine) {
+		this.engine = engine;
 		_processors = VRPTWParameters.threads;
-		threads = new VRPTWSolverThread[_processors];
 	}
 	
 	public VRPTWSolution resolve(VRPTWProblem problem) throws InterruptedException {
+		return resolve(problem, new SplittableRandom().nextLong());
+	}
+	
+	public VRPTWSolution resolve(VRPTWProblem problem, long seed) throws InterruptedException {
+		return resolve(problem, seed, VRPTWBudget.unlimited());
+	}
+	
+	
+	public VRPTWSolution resolve(VRPTWProblem problem, long seed, VRPTWBudget budget) throws InterruptedException {
+		return solve(problem, seed, budget, null);
+	}
+	
+	
+	public VRPTWSolution resume(File file) throws IOException, InterruptedException {
+		return resume(file, VRPTWBudget.unlimited());
+	}
+	
+	public VRPTWSolution resume(File file, VRPTWBudget budget) throws IOException, InterruptedException {
+		VRPTWCheckpoint checkpoint = VRPTWCheckpoint.read(file);
+		VRPTWProblem problem = new VRPTWProblem(checkpoint.instance, checkpoint.capacity);
+		checkpoint.restore(problem);
+		if (verbose) System.out.println("Riprendo " + checkpoint.instance + " dall'epoca " + checkpoint.epoch + " (" + file + ")");
+		return solve(problem, checkpoint.seed, budget, checkpoint);
+	}
+	
+	
+	private VRPTWSolution solve(VRPTWProblem problem, long seed, VRPTWBudget budget, VRPTWCheckpoint resume) throws InterruptedException {
 
-		System.out.println("Execution parameters: thread="+VRPTWParameters.threads+", tau="+VRPTWParameters.tau+", sigma="+VRPTWParameters.sigma+", gamma="+VRPTWParameters.gamma+", beta="+VRPTWParameters.beta+", delta="+VRPTWParameters.delta);
-		progressivo = 0;
+		long started = System.nanoTime();
+		budget.start();
+		if (verbose) System.out.println("Execution parameters: thread="+VRPTWParameters.threads+", tau="+VRPTWParameters.tau+", sigma="+VRPTWParameters.sigma+", gamma="+VRPTWParameters.gamma+", beta="+VRPTWParameters.beta+", delta="+VRPTWParameters.delta+", topology="+topology+", migration="+migration_interval+", k="+granularity+", adaptive="+VRPTWParameters.adaptive_operators+", batch="+speculative_batch+", seed="+seed+", "+budget);
+		progressivo = (resume == null) ? 0 : resume.epoch;
 		
 		
-		VRPTWSolution initialSolution = generateFirstSolution(problem);
+		VRPTWSolution[] starts = (resume == null) ? construct(problem) : new VRPTWSolution[] { resume.best_solution };
+		VRPTWSolution initialSolution = starts[0];
 		VRPTWSolution finalSolution = initialSolution;
 
-		System.out.println("Soluzione di partenza: costo " + finalSolution.cost() + " (km = "+finalSolution.totalTravelDistance()+", mezzi = " + finalSolution.routes.size() + ")");
-		LinkedList<VRPTWSolution> solutions = new LinkedList<VRPTWSolution>();
+		if (verbose) System.out.println("Soluzione di partenza: costo " + finalSolution.cost() + " (km = "+finalSolution.totalTravelDistance()+", mezzi = " + finalSolution.routes.size() + ")");
+		VRPTWSolution[] solutions = new VRPTWSolution[_processors];
+		SplittableRandom random = new SplittableRandom(seed);
 
 		
 		if (draw_solution)
 			printSolution(finalSolution, initialSolution , progressivo);
-		progressivo++;
+		if (resume == null)
+			progressivo++;
 		
 		
-		threads = new VRPTWSolverThread[_processors];
-		CyclicBarrier _start_barrier = new CyclicBarrier(_processors+1);
-		CyclicBarrier _done_barrier = new CyclicBarrier(_processors+1);
-		CyclicBarrier _cooperate_barrier = new CyclicBarrier(_processors);
-	     
+		VRPTWSolverThread[] threads = new VRPTWSolverThread[_processors];
 		for (int i=0; i<_processors; i++) {
-			threads[i] = new VRPTWSolverThread(i, problem, finalSolution, solutions, _start_barrier, _done_barrier, _cooperate_barrier);
+			VRPTWSolution start = construction_seeding ? starts[i % starts.length] : finalSolution;
+			threads[i] = new VRPTWSolverThread(i, problem, start, random.split(), solutions);
+			if (resume == null && construction_portfolio && construction_acceptance > 0)
+				threads[i].setStartAcceptance(construction_acceptance);
 			if (debug)
 				threads[i].activateDebugMode();			
-			if (i>0) {
-				threads[i-1].setCoWorkerNext(threads[i]);
-				threads[i].setCoWorkerPrev(threads[i-1]);
-			}
 		}
-		
-		
 		for (int i=0; i<_processors; i++) {
-			new Thread(threads[i]).start();
+			threads[i].setIslands(threads, topology, migration_interval);
+			threads[i].setGranularity(granularity);
+			threads[i].setBudget(budget);
+			if (resume != null && i < resume.workers.length)
+				threads[i].restore(resume.workers[i]);
+			if (speculative_batch > 1)
+				threads[i].setSpeculation(speculative_batch, engine.getSpeculationPool());
 		}
 		
-		int equilibrium = 0;
-		while (equilibrium < VRPTWParameters.tau) {
-			
+		metrics = new VRPTWSolverMetrics(problem.getInstanceName(), seed, threads);
+		metrics.improved(finalSolution.cost());
+		if (VRPTWParameters.jmx)
+			metrics.register();
+		ScheduledExecutorService logger = null;
+		if (metrics_log_interval > 0) {
+			final VRPTWSolverMetrics current = metrics;
+			logger = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "vrptw-metrics");
+				thread.setDaemon(true);
+				return thread;
+			});
+			logger.scheduleAtFixedRate(() -> System.out.println(current.logLine()), metrics_log_interval, metrics_log_interval, TimeUnit.SECONDS);
+		}
+		
+		ExecutorService checkpointer = null;
+		Future<?> pending = null;
+		if (checkpoint_file != null)
+			checkpointer = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "vrptw-checkpoint");
+				thread.setDaemon(true);
+				return thread;
+			});
+		
+		if (budget.satisfiedBy(finalSolution))
+			budget.stop(VRPTWBudget.Reason.TARGET);
+		
+		int equilibrium = (resume == null) ? 0 : resume.equilibrium;
+		try {
+			while (equilibrium < VRPTWParameters.tau && !budget.expired()) {
 			
 			
-			try {
-				_start_barrier.await();
-				_start_barrier.reset();
-				
-				
-				_done_barrier.await();
-				_done_barrier.reset();
-			} catch (InterruptedException e) {
-				break;
-			} catch (BrokenBarrierException e) {
-				break;
-			}
-
-			if (solutions.size() != _processors) { 
-				System.err.println("QUALCUNO HA MANCATO LA CONSEGNA!");
-				System.exit(1);
-			}
+				double temperature = threads[0].getTemperature();
+				VRPTWEvents.EpochWait wait = new VRPTWEvents.EpochWait();
+				wait.begin();
+				engine.runEpoch(threads);
+				wait.end();
+				long reduction = System.nanoTime();
+				long idle = 0;
+				for (VRPTWSolverThread thread : threads) {
+					thread.getMetrics().epochWait(reduction - thread.getEpochFinished());
+					idle += reduction - thread.getEpochFinished();
+				}
+				if (wait.shouldCommit()) {
+					wait.epoch = progressivo;
+					wait.temperature = temperature;
+					wait.cost = finalSolution.cost();
+					wait.idle = idle;
+					wait.commit();
+				}
+				VRPTWEvents.Reduction reduce = new VRPTWEvents.Reduction();
+				reduce.begin();
 			
 			
 			
-			VRPTWSolution bestSolution = solutions.remove();
-			while (solutions.size() > 0) {
-				VRPTWSolution s = solutions.remove();
-				if (s.cost()<bestSolution.cost()) {
-					bestSolution = s;
+				VRPTWSolution bestSolution = solutions[0];
+				for (int i=1; i<_processors; i++) {
+					VRPTWSolution s = solutions[i];
+					if (s.cost()<bestSolution.cost()) {
+						bestSolution = s;
+					}
 				}
-				
-			}
+				Arrays.fill(solutions, null);
 
 			
-			if (bestSolution.cost() < finalSolution.cost()) {
-				finalSolution = bestSolution;
-				equilibrium = 0;
-				System.out.println("Trovata soluzione migliore ... costo " + finalSolution.cost() + " (km = "+finalSolution.totalTravelDistance()+", mezzi = " + finalSolution.routes.size() + ")");
-			} else {
-				System.out.println("Nessun miglioramento (" + equilibrium + ")");
-				equilibrium ++;
-			}
+				if (bestSolution.cost() < finalSolution.cost()) {
+					finalSolution = bestSolution;
+					equilibrium = 0;
+					metrics.improved(finalSolution.cost());
+					if (budget.satisfiedBy(finalSolution))
+						budget.stop(VRPTWBudget.Reason.TARGET);
+					VRPTWEvents.Improvement improvement = new VRPTWEvents.Improvement();
+					if (improvement.shouldCommit()) {
+						improvement.worker = -1;
+						improvement.temperature = temperature;
+						improvement.cost = finalSolution.cost();
+						improvement.commit();
+					}
+					if (verbose) System.out.println("Trovata soluzione migliore ... costo " + finalSolution.cost() + " (km = "+finalSolution.totalTravelDistance()+", mezzi = " + finalSolution.routes.size() + ")");
+				} else {
+					if (verbose) System.out.println("Nessun miglioramento (" + equilibrium + ")");
+					equilibrium ++;
+				}
+				metrics.epochDone(progressivo, equilibrium, System.nanoTime() - reduction);
+				reduce.end();
+				if (reduce.shouldCommit()) {
+					reduce.epoch = progressivo;
+					reduce.cost = finalSolution.cost();
+					reduce.improved = (equilibrium == 0);
+					reduce.equilibrium = equilibrium;
+					reduce.commit();
+				}
 			
 			
-			if (draw_solution)
-				printSolution(finalSolution, initialSolution , progressivo);
-			progressivo++;
+				if (draw_solution)
+					printSolution(finalSolution, initialSolution , progressivo);
+				progressivo++;
+				
+				
+				if (checkpointer != null && progressivo % checkpoint_interval == 0 && (pending == null || pending.isDone()))
+					pending = writeCheckpoint(checkpointer, VRPTWCheckpoint.capture(problem, seed, progressivo, equilibrium, finalSolution, threads));
+			
+			}
 			
+			if (checkpointer != null)
+				writeCheckpoint(checkpointer, VRPTWCheckpoint.capture(problem, seed, progressivo, equilibrium, finalSolution, threads));
+		} finally {
+			if (logger != null)
+				logger.shutdownNow();
+			if (checkpointer != null) {
+				checkpointer.shutdown();
+				checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+			}
+			metrics.unregister();
 		}
-
 		
-		for (int i=0; i<_processors; i++) {
-			threads[i].stop();
-		}
-		try {
-			_start_barrier.await();
-		} catch (BrokenBarrierException e) { }
+		budget.stop(VRPTWBudget.Reason.EQUILIBRIUM);
+		stop_reason = budget.getReason();
+		if (verbose) System.out.println("Terminato in "+progressivo+" iterazioni (" + stop_reason + ").");
 		
-		System.out.println("Terminato in "+progressivo+" iterazioni.");
+		VRPTWOperatorSelector operators = new VRPTWOperatorSelector(false);
+		moves = cpu_time = 0;
+		for (VRPTWSolverThread thread : threads) {
+			operators.merge(thread.getOperatorSelector());
+			moves += thread.getMoves();
+			cpu_time += thread.getCpuTime();
+		}
+		wall_time = System.nanoTime() - started;
+		if (verbose) System.out.print(operators.summary());
 		
 		return finalSolution;
 	}
@@ -150,56 +292,42 @@ public class VRPTWSolver {
 	
 	
 	
-	protected VRPTWSolution generateFirstSolution(VRPTWProblem problem)  {
-		
-		VRPTWSolution solution = new VRPTWSolution(problem);
-		VRPTWCustomer warehouse = problem.getWarehouse();
+	private Future<?> writeCheckpoint(ExecutorService checkpointer, VRPTWCheckpoint checkpoint) {
+		final File file = checkpoint_file;
+		return checkpointer.submit(() -> {
+			try {
+				checkpoint.write(file);
+				if (debug) System.out.println("Checkpoint dell'epoca " + checkpoint.epoch + " salvato in " + file);
+			} catch (IOException e) {
+				System.err.println("Impossibile scrivere il checkpoint " + file + ": " + e.getMessage());
+			}
+		});
+	}
 	
-		LinkedList<VRPTWCustomer> customerToServe = new LinkedList<VRPTWCustomer>();	
-		for (VRPTWCustomer c : problem.customers) {
-			if (!c.isWarehouse())
-				customerToServe.add(c);
-		}
-		
+	
+	
+	
+	protected VRPTWSolution[] construct(VRPTWProblem problem) throws InterruptedException {
+		if (!construction_portfolio)
+			return new VRPTWSolution[] { generateFirstSolution(problem) };
 		
-		VRPTWRoute route = new VRPTWRoute(warehouse, problem.getVehicleCapacity());
-		while (!customerToServe.isEmpty()) {
-			
-			LinkedList<VRPTWCustomer> candidate_customers = route.candidate_customers(customerToServe);
-			LinkedList<VRPTWCandidateCustomerInsertion> candidate_insertions = new LinkedList<VRPTWCandidateCustomerInsertion>();
-			
-			
-			for (VRPTWCustomer c : candidate_customers) {
-				
-				candidate_insertions.addAll( route.candidate_insertions(c) );
-			}
-			Collections.sort(candidate_insertions);
-			
-			
-			ListIterator<VRPTWCandidateCustomerInsertion> itr = candidate_insertions.listIterator();
-			VRPTWCandidateCustomerInsertion insertion = null;
-			boolean inserted = false;
-			
-			while (itr.hasNext() && !inserted) {
-				insertion = itr.next();
-				inserted = route.addCustomer(insertion.customer, insertion.prev_customer_idx, insertion.next_customer_idx);
-			}
-			
-			if (inserted) {
-				customerToServe.remove(insertion.customer);
-				if (debug) System.out.println("Cliente inserito: " + insertion.customer);
-			}
-			
-			
-			if ( !inserted || (route._capacity == 0)) {
-				solution.addRoute(route);
-				route = new VRPTWRoute(warehouse, problem.getVehicleCapacity());
-				if (debug) System.out.println("Generazione di una nuova rotta");			
-			}
+		List<VRPTWConstruction> portfolio = VRPTWConstruction.portfolio(problem);
+		List<VRPTWSolution> solutions = engine.invokeAll(portfolio);
+		Integer[] order = new Integer[solutions.size()];
+		for (int i=0; i<order.length; i++) {
+			order[i] = i;
+			if (verbose) System.out.println("Costruzione " + portfolio.get(i) + ": costo " + solutions.get(i).cost() + " (km = " + solutions.get(i).totalTravelDistance() + ", mezzi = " + solutions.get(i).routes.size() + ", " + portfolio.get(i).getNanos() / 1000000 + " ms)");
 		}
-		if (route.customers.size() > 2)
-			solution.addRoute(route);
-		return solution;
+		Arrays.sort(order, (a, b) -> Double.compare(solutions.get(a).cost(), solutions.get(b).cost()));
+		VRPTWSolution[] starts = new VRPTWSolution[order.length];
+		for (int i=0; i<order.length; i++)
+			starts[i] = solutions.get(order[i]);
+		if (verbose) System.out.println("Miglior costruzione: " + portfolio.get(order[0]));
+		return starts;
+	}
+	
+	protected VRPTWSolution generateFirstSolution(VRPTWProblem problem)  {
+		return VRPTWConstruction.insertion(problem);
 	}
 	
 	private VRPTWSolution generateFirstSolution_old(VRPTWProblem problem)  {
@@ -221,14 +349,14 @@ public class VRPTWSolver {
 		
 		VRPTWCustomer prev_customer = warehouse;
 		
-		VRPTWRoute route = new VRPTWRoute(warehouse, problem.getVehicleCapacity());
+		VRPTWRoute route = new VRPTWRoute(problem);
 		while (!customerToServe.isEmpty()) {
 			VRPTWCustomer customer = customerToServe.remove();
-			boolean capacity_test = route.getRemainCapacity()-customer._demand > 0; 
-			boolean timewindow_test = route.travelTime()+VRPTWUtils.distance(prev_customer, customer) < customer._due_date; 
+			boolean capacity_test = route.getRemainCapacity()-customer.getDemand() > 0; 
+			boolean timewindow_test = route.travelTime()+problem.travelTime(prev_customer, customer) < customer.getEndTimeWindow(); 
 			if (!timewindow_test || !capacity_test) {
 				solution.addRoute(route);
-				route = new VRPTWRoute(warehouse, problem.getVehicleCapacity());
+				route = new VRPTWRoute(problem);
 				prev_customer = warehouse; 
 			}
 			route.addCustomer(customer);
@@ -245,6 +373,74 @@ public class VRPTWSolver {
 		debug = true;
 	}
 	
+	public void setTopology(VRPTWTopology topology) {
+		this.topology = topology;
+	}
+	
+	public void setMigrationInterval(int iterations) {
+		migration_interval = iterations;
+	}
+	
+	public void setGranularity(int k) {
+		granularity = Math.max(1, k);
+	}
+	
+	public void setSpeculativeBatch(int batch) {
+		speculative_batch = batch;
+	}
+	
+	public void setConstructionPortfolio(boolean portfolio, boolean seeding) {
+		construction_portfolio = portfolio;
+		construction_seeding = seeding;
+	}
+	
+	public void setConstructionAcceptance(double acceptance) {
+		construction_acceptance = acceptance;
+	}
+	
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+	
+	
+	public long getMoves() {
+		return moves;
+	}
+	
+	
+	public long getCpuTime() {
+		return cpu_time;
+	}
+	
+	
+	public long getWallTime() {
+		return wall_time;
+	}
+	
+	public int getEpochs() {
+		return progressivo;
+	}
+	
+	public VRPTWBudget.Reason getStopReason() {
+		return stop_reason;
+	}
+	
+	public VRPTWSolverMetrics getMetrics() {
+		return metrics;
+	}
+	
+	public void setMetricsLogInterval(int seconds) {
+		metrics_log_interval = seconds;
+	}
+	
+	public void setCheckpoint(File file) {
+		checkpoint_file = file;
+	}
+	
+	public void setCheckpointInterval(int epochs) {
+		checkpoint_interval = Math.max(1, epochs);
+	}
+	
 	public void activateDrawingSolutionsMode() {
 		draw_solution = true;
 	}
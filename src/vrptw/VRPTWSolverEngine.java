@@ -0,0 +1,65 @@
+package vrptw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class VRPTWSolverEngine {
+
+	private static VRPTWSolverEngine shared;
+
+	final ForkJoinPool _pool;
+	ForkJoinPool _speculation_pool;
+
+	public VRPTWSolverEngine(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be positive");
+		_pool = new ForkJoinPool(parallelism);
+	}
+
+
+	public static synchronized VRPTWSolverEngine getShared() {
+		if (shared == null)
+			shared = new VRPTWSolverEngine(Runtime.getRuntime().availableProcessors());
+		return shared;
+	}
+
+	public int getParallelism() {
+		return _pool.getParallelism();
+	}
+
+
+
+	public synchronized ForkJoinPool getSpeculationPool() {
+		if (_speculation_pool == null)
+			_speculation_pool = new ForkJoinPool(_pool.getParallelism());
+		return _speculation_pool;
+	}
+	
+	public void runEpoch(VRPTWSolverThread[] workers) throws InterruptedException {
+		invokeAll(Arrays.asList(workers));
+	}
+	
+	public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws InterruptedException {
+		List<T> values = new ArrayList<T>(tasks.size());
+		for (Future<T> result : _pool.invokeAll(tasks)) {
+			try {
+				values.add(result.get());
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("solver worker failed", e.getCause());
+			}
+		}
+		return values;
+	}
+
+	public synchronized void shutdown() {
+		_pool.shutdown();
+		if (_speculation_pool != null)
+			_speculation_pool.shutdown();
+	}
+
+}
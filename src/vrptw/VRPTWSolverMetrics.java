@@ -0,0 +1,186 @@
+package vrptw;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class VRPTWSolverMetrics implements VRPTWSolverMetricsMBean {
+
+	static final AtomicInteger sequence = new AtomicInteger();
+
+	final String _instance;
+	final long _seed;
+	final long _started;
+	final VRPTWWorkerMetrics[] _workers;
+
+	volatile int epochs;
+	volatile int equilibrium;
+	volatile double best_cost;
+	volatile long reduction_nanos;
+
+
+	long[] _history_times = new long[16];
+	double[] _history_costs = new double[16];
+	int _history_size;
+
+	ObjectName[] _names;
+
+	public VRPTWSolverMetrics(String instance, long seed, VRPTWSolverThread[] workers) {
+		_instance = instance;
+		_seed = seed;
+		_started = System.nanoTime();
+		_workers = new VRPTWWorkerMetrics[workers.length];
+		for (int i=0; i<workers.length; i++)
+			_workers[i] = workers[i].getMetrics();
+		best_cost = Double.MAX_VALUE;
+	}
+
+
+	synchronized void improved(double cost) {
+		if (_history_size == _history_times.length) {
+			_history_times = Arrays.copyOf(_history_times, _history_size << 1);
+			_history_costs = Arrays.copyOf(_history_costs, _history_size << 1);
+		}
+		_history_times[_history_size] = getElapsedMillis();
+		_history_costs[_history_size++] = cost;
+		best_cost = cost;
+	}
+
+	void epochDone(int epochs, int equilibrium, long reduction_nanos) {
+		this.epochs = epochs;
+		this.equilibrium = equilibrium;
+		this.reduction_nanos += reduction_nanos;
+	}
+
+
+
+	public void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		String solver = ObjectName.quote(_instance + "-" + sequence.incrementAndGet());
+		try {
+			_names = new ObjectName[_workers.length + 1];
+			_names[0] = new ObjectName("vrptw:type=Solver,name=" + solver);
+			server.registerMBean(this, _names[0]);
+			for (int i=0; i<_workers.length; i++) {
+				_names[i+1] = new ObjectName("vrptw:type=Worker,solver=" + solver + ",id=" + i);
+				server.registerMBean(_workers[i], _names[i+1]);
+			}
+		} catch (JMException e) {
+			System.err.println("Registrazione JMX fallita: " + e.getMessage());
+		}
+	}
+
+	public void unregister() {
+		if (_names == null)
+			return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : _names) {
+			try {
+				if (name != null && server.isRegistered(name))
+					server.unregisterMBean(name);
+			} catch (JMException e) {
+				System.err.println("Deregistrazione JMX fallita: " + e.getMessage());
+			}
+		}
+		_names = null;
+	}
+
+
+	public String logLine() {
+		return String.format(Locale.ROOT, "metriche %s: epoca %d (equilibrio %d), costo %.2f, mosse/s %.0f, accettazione %.2f%%, T=%.2f, attesa %dms, riduzione %dms, cloni %d, allocati %dMB",
+				_instance, epochs, equilibrium, best_cost, getMovesPerSecond(), 100 * getAcceptanceRatio(), getTemperature(),
+				getEpochWaitMillis(), getReductionMillis(), getClones(), getAllocatedBytes() >> 20);
+	}
+
+	public String getInstance() {
+		return _instance;
+	}
+
+	public long getSeed() {
+		return _seed;
+	}
+
+	public long getElapsedMillis() {
+		return (System.nanoTime() - _started) / 1000000;
+	}
+
+	public int getEpochs() {
+		return epochs;
+	}
+
+	public int getEquilibrium() {
+		return equilibrium;
+	}
+
+	public double getBestCost() {
+		return best_cost;
+	}
+
+	public synchronized long[] getBestCostTimes() {
+		return Arrays.copyOf(_history_times, _history_size);
+	}
+
+	public synchronized double[] getBestCosts() {
+		return Arrays.copyOf(_history_costs, _history_size);
+	}
+
+	public long getMoves() {
+		long moves = 0;
+		for (VRPTWWorkerMetrics w : _workers)
+			moves += w.getMoves();
+		return moves;
+	}
+
+	public double getMovesPerSecond() {
+		double rate = 0;
+		for (VRPTWWorkerMetrics w : _workers)
+			rate += w.getMovesPerSecond();
+		return rate;
+	}
+
+	public double getAcceptanceRatio() {
+		long moves = 0, accepted = 0;
+		for (VRPTWWorkerMetrics w : _workers) {
+			moves += w.getMoves();
+			accepted += w.getAcceptedMoves();
+		}
+		return (moves > 0) ? (double) accepted / moves : 0;
+	}
+
+	public double getTemperature() {
+		double temperature = 0;
+		for (VRPTWWorkerMetrics w : _workers)
+			temperature += w.getTemperature();
+		return temperature / _workers.length;
+	}
+
+	public long getEpochWaitMillis() {
+		long wait = 0;
+		for (VRPTWWorkerMetrics w : _workers)
+			wait += w.getEpochWaitMillis();
+		return wait;
+	}
+
+	public long getReductionMillis() {
+		return reduction_nanos / 1000000;
+	}
+
+	public long getClones() {
+		long clones = 0;
+		for (VRPTWWorkerMetrics w : _workers)
+			clones += w.getClones();
+		return clones;
+	}
+
+	public long getAllocatedBytes() {
+		long bytes = 0;
+		for (VRPTWWorkerMetrics w : _workers)
+			bytes += w.getAllocatedBytes();
+		return bytes;
+	}
+}
@@ -0,0 +1,36 @@
+package vrptw;
+
+public interface VRPTWSolverMetricsMBean {
+
+	String getInstance();
+
+	long getSeed();
+
+	long getElapsedMillis();
+
+	int getEpochs();
+
+	int getEquilibrium();
+
+	double getBestCost();
+
+	long[] getBestCostTimes();
+
+	double[] getBestCosts();
+
+	long getMoves();
+
+	double getMovesPerSecond();
+
+	double getAcceptanceRatio();
+
+	double getTemperature();
+
+	long getEpochWaitMillis();
+
+	long getReductionMillis();
+
+	long getClones();
+
+	long getAllocatedBytes();
+}
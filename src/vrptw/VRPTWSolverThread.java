@@ -1,77 +1,242 @@
 package vrptw;
 
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.ListIterator;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 
-public class VRPTWSolverThread implements Runnable {
+public class VRPTWSolverThread implements Callable<VRPTWSolution> {
 	
 	static boolean debug = false;
 	
+	static final int RELOCATE = 0;
+	static final int ORIG = 1;
+	static final int EXCHANGE = 2;
+	static final int TWO_OPT_STAR = 3;
+	static final int OR_OPT = 4;
+	static final int CROSS_EXCHANGE = 5;
+	
 	int _id;
-	boolean go;
 	VRPTWSolution _best_local_solution;
-	VRPTWSolution _previous_local_solution;
-	VRPTWSolution _coworker_solution;
 	VRPTWSolution _old_solution;
 	VRPTWProblem _problem;
+	SplittableRandom _random;
+	
+	VRPTWSolution[] _solutions;
+	
+	
+	final AtomicReference<VRPTWSolution> _mailbox;
+	VRPTWSolverThread[] _islands;
+	VRPTWTopology _topology;
+	int _migration_interval;
+	int _migration_round;
+	int[] _migration_targets;
+	double _last_sent_cost;
 	
-	LinkedList<VRPTWSolution> _solutions;
-	CyclicBarrier _start_barrier;
-	CyclicBarrier _done_barrier;
-	CyclicBarrier _cooperate;
+	int _granularity;
+	final VRPTWMove _move;
+	final VRPTWOperatorSelector _selector;
 	
-	VRPTWSolverThread _coworker_prev, _coworker_next;
+	
+	int _batch;
+	ForkJoinPool _speculation_pool;
+	VRPTWMove[] _batch_moves;
+	SplittableRandom[] _batch_random;
+	int[] _batch_operators;
+	boolean[] _batch_feasible;
+	double _acceptance;
+	
+	long _moves;
+	long _cpu_time;
+	long _clones;
+	long _migration_time;
+	long _epoch_finished;
+	double _best_cost_seen;
+	VRPTWBudget _budget;
+	boolean _target_reached;
+	int _move_sample;
+	final VRPTWWorkerMetrics _metrics;
+	final VRPTWInsertionEvaluator _insertions;
 	
 	double initial_temperature;
+	double _temperature;
 	int customers;
 	
-	public VRPTWSolverThread(int id, VRPTWProblem problem, VRPTWSolution solution, LinkedList<VRPTWSolution> solutions, CyclicBarrier start, CyclicBarrier done, CyclicBarrier cooperate) {
+	public VRPTWSolverThread(int id, VRPTWProblem problem, VRPTWSolution solution, SplittableRandom random, VRPTWSolution[] solutions) {
 		_id = id;
+		_random = random;
 		_old_solution = solution;
-		_best_local_solution = solution;
+		_best_local_solution = solution.clone();
+		_clones = 1;
+		_best_cost_seen = _best_local_solution.cost();
+		_budget = VRPTWBudget.unlimited();
+		_metrics = new VRPTWWorkerMetrics(id);
+		_insertions = new VRPTWInsertionEvaluator();
 		_problem = problem;
 		_solutions = solutions;
 		
-		_start_barrier = start;
-		_done_barrier = done;
-		_cooperate = cooperate;
-		
 		initial_temperature = VRPTWParameters.gamma * _old_solution.cost();
+		_temperature = initial_temperature;
 		customers = problem.getNumberOfCustomers();
 		
-		_coworker_solution = null;
-		go = true;
+		_mailbox = new AtomicReference<VRPTWSolution>();
+		_islands = new VRPTWSolverThread[] { this };
+		_topology = VRPTWParameters.topology;
+		_migration_interval = customers;
+		_migration_targets = new int[1];
+		_last_sent_cost = Double.MAX_VALUE;
+		_granularity = problem.getNeighborhoodSize();
+		_move = new VRPTWMove();
+		_selector = new VRPTWOperatorSelector(VRPTWParameters.adaptive_operators);
+		_batch = 1;
+		_acceptance = 1;
 	}
 	
 	public void activateDebugMode() {
 		debug = true;
 	}
 	
-	public void setCoWorkerPrev(VRPTWSolverThread socio) {
-		_coworker_prev = socio;
+	public void setStartAcceptance(double acceptance) {
+		double delta = initial_temperature * VRPTWParameters.delta;
+		_temperature = Math.min(initial_temperature, delta * acceptance / (1 - acceptance));
+	}
+	
+	public void setGranularity(int k) {
+		_granularity = Math.min(Math.max(1, k), _problem.getNeighborhoodSize());
+	}
+	
+	public void setSpeculation(int batch, ForkJoinPool pool) {
+		_batch = Math.max(1, batch);
+		_speculation_pool = pool;
+		if (_batch > 1) {
+			_batch_moves = new VRPTWMove[_batch];
+			for (int i=0; i<_batch; i++)
+				_batch_moves[i] = new VRPTWMove();
+			_batch_random = new SplittableRandom[_batch];
+			_batch_operators = new int[_batch];
+			_batch_feasible = new boolean[_batch];
+		}
+	}
+	
+	public void setBudget(VRPTWBudget budget) {
+		_budget = budget;
+	}
+	
+	VRPTWCheckpoint.Worker checkpoint() {
+		VRPTWCheckpoint.Worker state = new VRPTWCheckpoint.Worker();
+		state.routes = VRPTWCheckpoint.routes(_best_local_solution);
+		state.random_seed = _random.nextLong();
+		_random = new SplittableRandom(state.random_seed);
+		state.temperature = _temperature;
+		state.initial_temperature = initial_temperature;
+		state.best_cost_seen = _best_cost_seen;
+		state.acceptance = _acceptance;
+		state.migration_round = _migration_round;
+		state.moves = _moves;
+		state.cpu_time = _cpu_time;
+		_selector.checkpoint(state);
+		return state;
 	}
 	
-	public void setCoWorkerNext(VRPTWSolverThread socio) {
-		_coworker_next = socio;
+	void restore(VRPTWCheckpoint.Worker state) {
+		_best_local_solution = state.solution;
+		_random = new SplittableRandom(state.random_seed);
+		_temperature = state.temperature;
+		initial_temperature = state.initial_temperature;
+		_best_cost_seen = state.best_cost_seen;
+		_acceptance = state.acceptance;
+		_migration_round = state.migration_round;
+		_moves = state.moves;
+		_cpu_time = state.cpu_time;
+		_selector.restore(state);
 	}
 	
-	public void setCoWorkerSolution(VRPTWSolution another_solution) {
+	public void setIslands(VRPTWSolverThread[] islands, VRPTWTopology topology, int migration_interval) {
+		_islands = islands;
+		_topology = topology;
+		if (migration_interval > 0)
+			_migration_interval = migration_interval;
+		_migration_targets = new int[islands.length];
+	}
+	
+	
+	public void offerSolution(VRPTWSolution another_solution) {
 		if (another_solution == null)
 			throw new IllegalArgumentException("ricevo una soluzione null dal collega!");
-		_coworker_solution = another_solution;
+		double cost = another_solution.cost();
+		while (true) {
+			VRPTWSolution current = _mailbox.get();
+			if (current != null && current.cost() <= cost)
+				return;
+			if (_mailbox.compareAndSet(current, another_solution))
+				return;
+		}
+	}
+	
+	
+	protected void migrate() {
+		VRPTWEvents.Migration event = new VRPTWEvents.Migration();
+		event.begin();
+		
+		VRPTWSolution incoming = _mailbox.getAndSet(null);
+		if (incoming != null && incoming.cost() < _best_local_solution.cost()) {
+			if (debug) System.out.println("thread-"+_id+" adotto la soluzione arrivata da un collega");
+			_best_local_solution = incoming.clone();
+			_clones++;
+			event.adopted = true;
+		}
+		
+		double cost = _best_local_solution.cost();
+		if (cost != _last_sent_cost) {
+			VRPTWSolution snapshot = _best_local_solution.clone();
+			_clones++;
+			int targets = _topology.targets(_id, _islands.length, _migration_round, _random, _migration_targets);
+			for (int i=0; i<targets; i++) {
+				if (debug) System.out.println("thread-"+_id+" consegno al collega "+_migration_targets[i]+" la mia soluzione");
+				_islands[_migration_targets[i]].offerSolution(snapshot);
+			}
+			_last_sent_cost = cost;
+			event.targets = targets;
+		}
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.worker = _id;
+			event.temperature = _temperature;
+			event.cost = cost;
+			event.commit();
+		}
+		_migration_round++;
 	}
 	
 
 
 
 	
-	public void stop() {
-		go = false;
+	public double getTemperature() {
+		return _temperature;
+	}
+	
+	public VRPTWOperatorSelector getOperatorSelector() {
+		return _selector;
+	}
+	
+	public VRPTWWorkerMetrics getMetrics() {
+		return _metrics;
+	}
+	
+	public long getEpochFinished() {
+		return _epoch_finished;
+	}
+	
+	public long getMoves() {
+		return _moves;
+	}
+	
+	public long getCpuTime() {
+		return _cpu_time;
 	}
 	
 	public int getID() {
@@ -79,311 +244,468 @@ public class VRPTWSolverThread implements Runnable {
 	}
 
 	@Override
-	public void run() {
-		
-		double temperature = initial_temperature;
-		
-		if (debug) System.out.println("SolverThread "+_id+" avviato!");
-		
-		
-		try {
-			_start_barrier.await();
-		} catch (BrokenBarrierException e) {
-			go = false;
-		} catch (InterruptedException e) {
-			go = false;
-		}
-		
-		while (go) {
+	public VRPTWSolution call() {
+		
+		double temperature = _temperature;
+		
+		if (debug) System.out.println("SolverThread "+_id+" avvia una nuova epoca (T=" + Math.round(temperature) + ")");
+		VRPTWEvents.Epoch epoch = new VRPTWEvents.Epoch();
+		epoch.begin();
+		double start_cost = _best_local_solution.cost();
+		long accepted_started = _selector.getAccepted();
+		long started = System.nanoTime();
+		long cpu_started = VRPTWWorkerMetrics.cpuTime();
+		long allocation_started = VRPTWWorkerMetrics.allocatedBytes();
+		long migration_started = _migration_time;
+		int published = 0;
+		int checked = 0;
+		_target_reached = false;
+		
+		int limit = customers*customers;
+		int iteration = 0;
+		while (iteration < limit) {
 			
+			int consumed = 1;
+			int operator = _selector.select(_random);
+			int size = (_batch > 1 && operator >= TWO_OPT_STAR) ? (int) Math.min(_batch, 1 / _acceptance) : 1;
+			if (size > 1)
+				consumed = speculate(operator, temperature, Math.min(size, limit - iteration));
+			else
+				iterate(operator, temperature);
 			
 			
-			for (int iteration=0; iteration < customers*customers; iteration++ ) {
-
-				_previous_local_solution = _best_local_solution;
-				_best_local_solution = annealing_step(_previous_local_solution);
-
+			int previous = iteration;
+			iteration += consumed;
+			if ( (_islands.length > 1) && iteration / _migration_interval != previous / _migration_interval) {
+				long migration = System.nanoTime();
+				migrate();
+				_migration_time += System.nanoTime() - migration;
+			}
+			
+			if (iteration - published >= VRPTWWorkerMetrics.PUBLISH_INTERVAL) {
+				_metrics.publish(_moves + iteration, _selector.getAccepted(), temperature, _best_local_solution.cost(), _clones);
+				published = iteration;
+			}
+			
+			
+			if (_target_reached)
+				break;
+			if (iteration - checked >= VRPTWBudget.CHECK_INTERVAL) {
+				if (_budget.expired())
+					break;
+				checked = iteration;
+			}
+		}
+		
+		
+		if (debug) System.out.println("thread-"+_id+" consegna soluzione best_local al thread supervisore");
+		_solutions[_id] = _best_local_solution.clone();
+		_clones++;
+		
+		_moves += iteration;
+		long cpu_time = VRPTWWorkerMetrics.cpuTime() - cpu_started;
+		_cpu_time += cpu_time;
+		_temperature = temperature * VRPTWParameters.beta;
+		_metrics.publish(_moves, _selector.getAccepted(), _temperature, _best_local_solution.cost(), _clones);
+		_epoch_finished = System.nanoTime();
+		_metrics.epochDone(_epoch_finished - started, cpu_time, VRPTWWorkerMetrics.allocatedBytes() - allocation_started, _migration_time - migration_started);
+		
+		epoch.end();
+		if (epoch.shouldCommit()) {
+			epoch.worker = _id;
+			epoch.temperature = temperature;
+			epoch.startCost = start_cost;
+			epoch.cost = _best_local_solution.cost();
+			epoch.moves = iteration;
+			epoch.accepted = _selector.getAccepted() - accepted_started;
+			epoch.commit();
+		}
+		return _solutions[_id];
+	}
+	
+	
+	private void iterate(int operator, double temperature) {
+		VRPTWEvents.Move event = null;
+		if (++_move_sample >= VRPTWParameters.jfr_move_sampling) {
+			_move_sample = 0;
+			event = new VRPTWEvents.Move();
+			event.begin();
+		}
+		long started = System.nanoTime();
+		double cost_old = _best_local_solution.cost();
+		boolean accepted = false;
+		
+		if (operator < TWO_OPT_STAR) {
+			_best_local_solution.beginMove();
+			if (!step(operator, _best_local_solution)) {
+				_best_local_solution.rollbackMove();
+			} else {
 				
 				double cost_new = _best_local_solution.cost();
-				double cost_old = _previous_local_solution.cost();
 				if (cost_new > cost_old) {
-					if (debug) System.out.print("thread: soluzione peggiore di quella di partenza: costo " + Math.round(_best_local_solution.cost()) + " con " + _best_local_solution.routes.size() + " mezzi");
-					if (Math.random() < (temperature/(temperature + initial_temperature*VRPTWParameters.delta))) {
+					if (debug) System.out.print("thread: soluzione peggiore di quella di partenza: costo " + Math.round(cost_new) + " con " + _best_local_solution.routes.size() + " mezzi");
+					if (metropolis(temperature)) {
+						_best_local_solution.commitMove();
+						accepted = true;
 						if (debug) System.out.println(" accettata comunque (T=" + Math.round(temperature) + ")");
 					} else {
 						
-						_best_local_solution = _previous_local_solution;
+						_best_local_solution.rollbackMove();
 						if (debug) System.out.println(" rifiutata");
 					}
-				} else
-					if (debug) System.out.println("thread: soluzione migliore di quella di partenza: costo " + Math.round(_best_local_solution.cost()) + " con " + _best_local_solution.routes.size() + " mezzi");
-				
-				
-				if ( ( (_coworker_next != null) || (_coworker_prev != null) ) &&  iteration % customers == customers-1) {
-					if (_id == 0) {
-						
-						try {
-							_cooperate.await();
-							_cooperate.reset();
-						} catch (BrokenBarrierException e) {
-							go = false;
-						} catch (InterruptedException e) {
-							go = false;
-						}
-						
-						
-						if (debug) System.out.println("thread-"+_id+" consegno al collega "+_coworker_next.getID()+" la mia soluzione");
-						synchronized(_coworker_next) {
-							_coworker_next.setCoWorkerSolution(_best_local_solution);
-							_coworker_next.notify();
-						}
-					} else {
-						
-						try {
-							_cooperate.await();
-						} catch (BrokenBarrierException e) {
-							go = false;
-						} catch (InterruptedException e) {
-							go = false;
-						}
-						
-						
-						synchronized(this) {
-							while (_coworker_solution == null) {
-								try {
-									if (debug) System.out.println("thread-"+_id+" attendo il collega "+_coworker_prev.getID());
-									this.wait();
-								} catch (InterruptedException e) {
-									go = false;
-									break;
-								}
-							}
-						}
-						
-						
-						
-						if (debug) System.out.println("thread-"+_id+" controllo solutione arrivata dal collega "+_coworker_prev.getID());
-						if (_coworker_solution.cost() < _best_local_solution.cost()) {
-							_best_local_solution = _coworker_solution.clone();	
-						}
-						
-						if (_coworker_next != null) {
-							if (debug) System.out.println("thread-"+_id+" consegno al collega "+_coworker_next.getID()+" la soluzione migliore");
-							synchronized(_coworker_next) {
-								_coworker_next.setCoWorkerSolution(_best_local_solution);
-								_coworker_next.notify();
-							}
-						}
-					}
-					_coworker_solution = null;
+				} else {
+					_best_local_solution.commitMove();
+					accepted = true;
+					if (debug) System.out.println("thread: soluzione migliore di quella di partenza: costo " + Math.round(cost_new) + " con " + _best_local_solution.routes.size() + " mezzi");
 				}
 			}
+		} else if (propose(operator, _best_local_solution, _move, _random)) {
 			
 			
-			if (debug) System.out.println("thread-"+_id+" consegna soluzione best_local al thread supervisore");
-			synchronized(_solutions) {
-				_solutions.add(_best_local_solution);
+			if (_move.delta <= 0 || metropolis(temperature)) {
+				_best_local_solution.beginMove();
+				if (_move.apply(_best_local_solution)) {
+					_best_local_solution.commitMove();
+					accepted = true;
+					if (debug) System.out.println("thread: mossa " + VRPTWOperatorSelector.NAMES[operator] + " accettata: costo " + Math.round(_best_local_solution.cost()) + " con " + _best_local_solution.routes.size() + " mezzi");
+				} else {
+					_best_local_solution.rollbackMove();
+				}
 			}
-			
-			try {
-				
-				_done_barrier.await();
-				
-				
-				if (debug) System.out.println("thread-"+_id+" in attesa di iniziare di nuovo");
-				_start_barrier.await();
-			} catch (BrokenBarrierException e) {
-				go = false;
-			} catch (InterruptedException e) {
-				go = false;
+		}
+		_selector.record(operator, accepted, cost_old - _best_local_solution.cost(), System.nanoTime() - started);
+		if (accepted)
+			improved(operator, temperature);
+		
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.worker = _id;
+				event.temperature = temperature;
+				event.cost = _best_local_solution.cost();
+				event.operator = VRPTWOperatorSelector.NAMES[operator];
+				event.accepted = accepted;
+				event.gain = cost_old - event.cost;
+				event.commit();
 			}
-			
-			temperature *= VRPTWParameters.beta;
 		}
-		
-		if (debug) System.out.println("SolverThread "+_id+" termina");
+		if (operator >= TWO_OPT_STAR)
+			_acceptance = 0.99 * _acceptance + (accepted ? 0.01 : 0);
 	}
 	
 	
-	protected static VRPTWSolution annealing_step(VRPTWSolution start_solution) {
-		VRPTWSolution newSolution = start_solution.clone();
 	
+	private int speculate(int operator, double temperature, int size) {
+		int n = 0;
+		int pending = -1;
+		while (true) {
+			_batch_operators[n] = operator;
+			_batch_random[n] = _random.split();
+			_batch_feasible[n] = sample(operator, _best_local_solution, _batch_moves[n], _batch_random[n]);
+			if (_batch_feasible[n])
+				_batch_moves[n].prepare();
+			n++;
+			if (n == size)
+				break;
+			operator = _selector.select(_random);
+			if (operator < TWO_OPT_STAR) {
+				pending = operator;
+				break;
+			}
+		}
 		
-		int src_route_idx = new Long(Math.round(Math.random()*(newSolution.routes.size()-1))).intValue(); 
-		VRPTWRoute src_route = newSolution.routes.get(src_route_idx);
-		int indexOfCustomer = new Long(Math.round(Math.random()*( src_route.customers.size()-3 ))).intValue() + 1;
-		VRPTWCustomer customer = src_route.customers.get(indexOfCustomer);
 		
+		long started = System.nanoTime();
+		_speculation_pool.invoke(new BatchEvaluation(0, n));
+		long nanos = (System.nanoTime() - started) / n;
 		
-		src_route.removeCustomer(customer);
-		if (src_route.travelDistance() < 0.0001) { 
-			newSolution.removeRoute(src_route);
-			if (debug) System.out.println("Rimozione di rotta");	
+		
+		for (int k=0; k<n; k++) {
+			VRPTWMove move = _batch_moves[k];
+			boolean accepted = false;
+			double cost_old = _best_local_solution.cost();
+			if (_batch_feasible[k] && (move.delta <= 0 || metropolis(temperature))) {
+				_best_local_solution.beginMove();
+				if (move.apply(_best_local_solution)) {
+					_best_local_solution.commitMove();
+					accepted = true;
+				} else {
+					_best_local_solution.rollbackMove();
+				}
+			}
+			_selector.record(_batch_operators[k], accepted, cost_old - _best_local_solution.cost(), nanos);
+			if (accepted)
+				improved(_batch_operators[k], temperature);
+			_acceptance = 0.99 * _acceptance + (accepted ? 0.01 : 0);
+			if (accepted) {
+				if (debug) System.out.println("thread-"+_id+": mossa speculativa " + (k+1) + "/" + n + " accettata: costo " + Math.round(_best_local_solution.cost()));
+				return k+1;
+			}
+		}
+		
+		if (pending >= 0) {
+			iterate(pending, temperature);
+			return n+1;
+		}
+		return n;
+	}
+	
+	
+	@SuppressWarnings("serial")
+	private class BatchEvaluation extends RecursiveAction {
+		
+		static final int GRAIN = 2;
+		
+		final int from, to;
+		
+		BatchEvaluation(int from, int to) {
+			this.from = from;
+			this.to = to;
 		}
 		
+		@Override
+		protected void compute() {
+			if (to - from <= GRAIN) {
+				for (int k=from; k<to; k++)
+					if (_batch_feasible[k])
+						_batch_feasible[k] = _batch_moves[k].evaluate(_best_local_solution);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchEvaluation(from, middle), new BatchEvaluation(middle, to));
+		}
+	}
+	
+	
+	private void improved(int operator, double temperature) {
+		double cost = _best_local_solution.cost();
+		if (cost >= _best_cost_seen)
+			return;
+		_best_cost_seen = cost;
+		if (_budget.satisfiedBy(_best_local_solution)) {
+			_budget.stop(VRPTWBudget.Reason.TARGET);
+			_target_reached = true;
+		}
 		
-		int dest_route_idx = new Long(Math.round(Math.random()*(newSolution.routes.size()-1))).intValue(); 
-		VRPTWRoute dest_route = newSolution.routes.get(dest_route_idx);
+		VRPTWEvents.Improvement event = new VRPTWEvents.Improvement();
+		if (event.shouldCommit()) {
+			event.worker = _id;
+			event.temperature = temperature;
+			event.cost = cost;
+			event.operator = VRPTWOperatorSelector.NAMES[operator];
+			event.commit();
+		}
+	}
+	
+	private boolean metropolis(double temperature) {
+		return _random.nextDouble() < (temperature/(temperature + initial_temperature*VRPTWParameters.delta));
+	}
+	
+	
+	protected boolean step(int operator, VRPTWSolution solution) {
+		switch (operator) {
+		case RELOCATE:
+			return annealing_step(solution);
+		case ORIG:
+			return annealing_step_orig(solution);
+		case EXCHANGE:
+			return annealing_step_exchange(solution);
+		}
+		return false;
+	}
+	
+	
+	protected boolean propose(int operator, VRPTWSolution solution, VRPTWMove move, SplittableRandom random) {
+		return sample(operator, solution, move, random) && move.evaluate(solution);
+	}
+	
+	
+	protected boolean sample(int operator, VRPTWSolution solution, VRPTWMove move, SplittableRandom random) {
+		switch (operator) {
+		case TWO_OPT_STAR:
+			return two_opt_star_move(solution, move, random);
+		case OR_OPT:
+			return or_opt_move(solution, move, random);
+		case CROSS_EXCHANGE:
+			return cross_exchange_move(solution, move, random);
+		}
+		return false;
+	}
+	
+	
+	protected boolean two_opt_star_move(VRPTWSolution solution, VRPTWMove move, SplittableRandom random) {
+		if (_granularity == 0)
+			return false;
+		
+		VRPTWRoute r1 = solution.routes.get( random.nextInt( solution.routes.size() ) );
+		int i = random.nextInt( (r1.size() - 2) ) + 1;
+		int v = _problem.getNeighbor(r1.getCustomerID(i), random.nextInt(_granularity));
+		VRPTWRoute r2 = solution.routeOf(v);
+		if (r2 == r1)
+			return false;
+		int v_idx = solution.positionOf(v);
+		
+		
+		if (random.nextBoolean())
+			move.twoOptStar(r1, i, r2, v_idx-1);
+		else
+			move.twoOptStar(r1, i-1, r2, v_idx);
+		return true;
+	}
+	
+	
+	protected boolean or_opt_move(VRPTWSolution solution, VRPTWMove move, SplittableRandom random) {
+		if (_granularity == 0)
+			return false;
+		
+		VRPTWRoute r1 = solution.routes.get( random.nextInt( solution.routes.size() ) );
+		int i = random.nextInt( (r1.size() - 2) ) + 1;
+		int length = random.nextInt( Math.min(VRPTWMove.MAX_SEGMENT_LENGTH, r1.size()-1-i) ) + 1;
+		int v = _problem.getNeighbor(r1.getCustomerID(i), random.nextInt(_granularity));
+		VRPTWRoute r2 = solution.routeOf(v);
+		int v_idx = solution.positionOf(v);
+		
+		move.orOpt(r1, i, length, r2, random.nextBoolean() ? v_idx-1 : v_idx);
+		return true;
+	}
+	
+	
+	protected boolean cross_exchange_move(VRPTWSolution solution, VRPTWMove move, SplittableRandom random) {
+		if (_granularity == 0)
+			return false;
+		
+		VRPTWRoute r1 = solution.routes.get( random.nextInt( solution.routes.size() ) );
+		int i = random.nextInt( (r1.size() - 2) ) + 1;
+		int l1 = random.nextInt( Math.min(VRPTWMove.MAX_SEGMENT_LENGTH, r1.size()-1-i) ) + 1;
+		int v = _problem.getNeighbor(r1.getCustomerID(i), random.nextInt(_granularity));
+		VRPTWRoute r2 = solution.routeOf(v);
+		if (r2 == r1)
+			return false;
+		int j = solution.positionOf(v);
+		int l2 = random.nextInt( Math.min(VRPTWMove.MAX_SEGMENT_LENGTH, r2.size()-1-j) ) + 1;
+		
+		move.crossExchange(r1, i, l1, r2, j, l2);
+		return true;
+	}
+	
+	
+	protected boolean annealing_step(VRPTWSolution solution) {
+	
 		
+		int src_route_idx = (int) Math.round(_random.nextDouble()*(solution.routes.size()-1)); 
+		VRPTWRoute src_route = solution.routes.get(src_route_idx);
+		int indexOfCustomer = (int) Math.round(_random.nextDouble()*( src_route.size()-3 )) + 1;
+		VRPTWCustomer customer = src_route.getCustomer(indexOfCustomer);
 		
-		LinkedList<VRPTWCandidateCustomerInsertion> candidate_insertions = dest_route.candidate_insertions(customer);
-		Collections.sort(candidate_insertions);
 		
+		if (_granularity == 0)
+			return false;
+		int neighbor = _problem.getNeighbor(customer._id, _random.nextInt(_granularity));
 		
-		ListIterator<VRPTWCandidateCustomerInsertion> itr = candidate_insertions.listIterator();
-		VRPTWCandidateCustomerInsertion insertion = null;
-		boolean inserted = false;
 		
-		while (itr.hasNext() && !inserted) {
-			insertion = itr.next();
-			inserted = dest_route.addCustomer(insertion.customer, insertion.prev_customer_idx, insertion.next_customer_idx);
+		src_route.removeCustomer(customer);
+		if (src_route.travelDistance() < 0.0001) { 
+			solution.removeRoute(src_route);
+			if (debug) System.out.println("Rimozione di rotta");	
 		}
 		
-		if (!inserted)
-			newSolution = start_solution;
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-		return newSolution;		
+		
+		VRPTWRoute dest_route = solution.routeOf(neighbor);
+		int neighbor_idx = solution.positionOf(neighbor);
+		
+		
+		double before = Double.MAX_VALUE, after = Double.MAX_VALUE;
+		if (dest_route.canInsert(customer._id, neighbor_idx-1))
+			before = dest_route.insertionDistanceDelta(customer._id, neighbor_idx-1);
+		if (dest_route.canInsert(customer._id, neighbor_idx))
+			after = dest_route.insertionDistanceDelta(customer._id, neighbor_idx);
+		if (before == Double.MAX_VALUE && after == Double.MAX_VALUE)
+			return false;
+		
+		int prev_customer_idx = (before <= after) ? neighbor_idx-1 : neighbor_idx;
+		return dest_route.addCustomer(customer, prev_customer_idx, prev_customer_idx+1);		
 	}
 
 	
-	protected static VRPTWSolution annealing_step_orig(VRPTWSolution start_solution) {
-		VRPTWSolution newSolution = start_solution.clone();
+	protected boolean annealing_step_orig(VRPTWSolution solution) {
 
 		
-		int indexOfFirstRoute = new Long(Math.round(Math.random()*(newSolution.routes.size()-1))).intValue();
-		VRPTWRoute r1 = newSolution.routes.get(indexOfFirstRoute);
+		int indexOfFirstRoute = (int) Math.round(_random.nextDouble()*(solution.routes.size()-1));
+		VRPTWRoute r1 = solution.routes.get(indexOfFirstRoute);
 		
 		
-		LinkedList<VRPTWCustomer> externalCustomers = new LinkedList<VRPTWCustomer>();
-		for (VRPTWRoute r : newSolution.routes) {
-			if (r != r1) {
-				for (VRPTWCustomer c : r.customers)
-					if (!c.isWarehouse())
-						externalCustomers.add(c);
-				
+		int nearest = -1;
+		double nearest_distance = Double.MAX_VALUE;
+		for (int i=1; i<r1.size()-1; i++) {
+			int u = r1.getCustomerID(i);
+			for (int rank=0; rank<_granularity; rank++) {
+				int v = _problem.getNeighbor(u, rank);
+				double distance = _problem.distance(u, v);
+				if (distance < nearest_distance && solution.routeOf(v) != r1) {
+					nearest = v;
+					nearest_distance = distance;
+				}
 			}
 		}
-		Collections.sort(externalCustomers, new VRPTWCustomerNearestToRouteComparator(r1));
-		VRPTWCustomer nearestCustomer = externalCustomers.remove();;
+		if (nearest == -1)
+			return false;
+		VRPTWCustomer nearestCustomer = _problem.getCustomer(nearest);
 		
 		
-		for (VRPTWRoute r : newSolution.routes) {
-			if (r.serve(nearestCustomer)) {
-				r.removeCustomer(nearestCustomer);
-				if (r.travelDistance() < 0.0001) { 
-					newSolution.removeRoute(r);
-					if (debug) System.out.println("Rimozione di rotta <------");
-				}
-				break;
-			}
+		VRPTWRoute r = solution.routeOf(nearest);
+		r.removeCustomer(nearestCustomer);
+		if (r.travelDistance() < 0.0001) { 
+			solution.removeRoute(r);
+			if (debug) System.out.println("Rimozione di rotta <------");
 		}
 
 		
-		LinkedList<VRPTWCandidateCustomerInsertion> candidate_insertions = r1.candidate_insertions(nearestCustomer);
-		Collections.sort(candidate_insertions);
-		
-		
-		ListIterator<VRPTWCandidateCustomerInsertion> itr = candidate_insertions.listIterator();
-		VRPTWCandidateCustomerInsertion insertion = null;
-		boolean inserted = false;
-		
-		while (itr.hasNext() && !inserted) {
-			insertion = itr.next();
-			inserted = r1.addCustomer(insertion.customer, insertion.prev_customer_idx, insertion.next_customer_idx);
-		}
+		_insertions.clear();
+		r1.candidate_insertions(nearestCustomer, _insertions);
+		boolean inserted = _insertions.best() && r1.addCustomer(nearestCustomer, _insertions.prev_customer_idx, _insertions.next_customer_idx);
 		
 		
 		if (!inserted) {
-			VRPTWRoute route = new VRPTWRoute(r1._warehouse, r1._initial_capacity);
+			VRPTWRoute route = new VRPTWRoute(r1._problem);
 			route.addCustomer(nearestCustomer);
-			newSolution.addRoute(route);
+			solution.addRoute(route);
 			if (debug) System.out.println("Generazione di una nuova rotta <------");
 		}
 		
-		
-
-
-
-
-
-
-
-
-
-
-
-
-
-		
-		return newSolution;		
+		return true;		
 	}
 	
 
 	
 	
-	protected static VRPTWSolution annealing_step_exchange(VRPTWSolution start_solution) {
-		VRPTWSolution newSolution = start_solution.clone();
+	protected boolean annealing_step_exchange(VRPTWSolution solution) {
+		if (_granularity == 0)
+			return false;
 		
-		Random rnd_gen = new Random();
-	
-		int r_idx1 = rnd_gen.nextInt( newSolution.routes.size() );
-		int c_idx1 = rnd_gen.nextInt( (newSolution.routes.get(r_idx1).customers.size() - 2) ) + 1;
-		VRPTWCustomer c1 = newSolution.routes.get(r_idx1).customers.get(c_idx1);
+		VRPTWRoute r1 = solution.routes.get( _random.nextInt( solution.routes.size() ) );
+		int c_idx1 = _random.nextInt( (r1.size() - 2) ) + 1;
+		VRPTWCustomer c1 = r1.getCustomer(c_idx1);
 		
-		int r_idx2 = rnd_gen.nextInt( newSolution.routes.size() );
-		int c_idx2 = rnd_gen.nextInt( (newSolution.routes.get(r_idx2).customers.size() - 2) ) + 1;
-		VRPTWCustomer c2 = newSolution.routes.get(r_idx2).customers.get(c_idx2);
+		VRPTWCustomer c2 = _problem.getCustomer( _problem.getNeighbor(c1._id, _random.nextInt(_granularity)) );
+		VRPTWRoute r2 = solution.routeOf(c2._id);
+		int c_idx2 = solution.positionOf(c2._id);
 	
-		newSolution.routes.get(r_idx1).removeCustomer(c1);
-		newSolution.routes.get(r_idx2).removeCustomer(c2);
+		r1.removeCustomer(c1);
+		r2.removeCustomer(c2);
 		
 		boolean inserted = false;
 		
-		if ( (r_idx1 == r_idx2) && (c_idx1<c_idx2) ) {
-			inserted = newSolution.routes.get(r_idx1).addCustomer(c2, c_idx1-1, c_idx1);
+		if ( (r1 == r2) && (c_idx1<c_idx2) ) {
+			inserted = r1.addCustomer(c2, c_idx1-1, c_idx1);
 			if (inserted)
-				inserted = newSolution.routes.get(r_idx2).addCustomer(c1, c_idx2-1, c_idx2);
+				inserted = r2.addCustomer(c1, c_idx2-1, c_idx2);
 		} else {
-			inserted = newSolution.routes.get(r_idx2).addCustomer(c1, c_idx2-1, c_idx2);
+			inserted = r2.addCustomer(c1, c_idx2-1, c_idx2);
 			if (inserted)
-				inserted = newSolution.routes.get(r_idx1).addCustomer(c2, c_idx1-1, c_idx1);
+				inserted = r1.addCustomer(c2, c_idx1-1, c_idx1);
 		}			
 		
-		
-		if (!inserted)
-			return start_solution;
-		
-		
-
-
-
-
-
-
-
-
-
-
-
-
-
-	
-		return newSolution;
+		return inserted;
 	}
 	
 }
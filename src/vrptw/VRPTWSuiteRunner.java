@@ -0,0 +1,240 @@
+package vrptw;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class VRPTWSuiteRunner {
+
+	static final String[] CLASSES = { "C1", "C2", "R1", "R2", "RC1", "RC2" };
+	static final double[] CAPACITIES = { 200, 700, 200, 1000, 200, 1000 };
+
+	public static void main(String[] args) throws Exception {
+		List<String> classes = new ArrayList<String>(Arrays.asList(CLASSES));
+		long[] seeds = { 1 };
+		int cores = Runtime.getRuntime().availableProcessors();
+		int parallel = 0;
+		String csv = null, json = null;
+		long time_limit = -1;
+		double target_gap = Double.NaN;
+
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("--classes"))
+				classes = Arrays.asList(args[++i].toUpperCase().split(","));
+			else if (args[i].equals("--seeds"))
+				seeds = parseSeeds(args[++i]);
+			else if (args[i].equals("--cores"))
+				cores = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--parallel"))
+				parallel = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--time-limit"))
+				time_limit = Long.parseLong(args[++i]);
+			else if (args[i].equals("--target-gap"))
+				target_gap = Double.parseDouble(args[++i]);
+			else if (args[i].equals("--csv"))
+				csv = args[++i];
+			else if (args[i].equals("--json"))
+				json = args[++i];
+			else
+				throw new IllegalArgumentException("opzione sconosciuta: " + args[i] + " (uso: --classes C1,R1 --seeds 1,2,3|1-5 --cores N --parallel N --time-limit ms --target-gap pct --csv file --json file)");
+		}
+		if (parallel <= 0)
+			parallel = Math.max(1, (cores + VRPTWParameters.threads - 1) / VRPTWParameters.threads);
+
+		VRPTWSuiteRunner runner = new VRPTWSuiteRunner(cores, parallel);
+		runner.setTimeLimit(time_limit);
+		runner.setTargetGap(target_gap);
+		List<Result> results = runner.run(classes, seeds);
+
+		if (csv != null)
+			try (PrintWriter out = new PrintWriter(new FileWriter(csv))) {
+				writeCsv(results, out);
+			}
+		if (json != null)
+			try (PrintWriter out = new PrintWriter(new FileWriter(json))) {
+				writeJson(results, out);
+			}
+		if (csv == null && json == null) {
+			PrintWriter out = new PrintWriter(System.out);
+			writeCsv(results, out);
+			out.flush();
+		}
+	}
+
+	private static long[] parseSeeds(String description) {
+		if (description.contains("-")) {
+			String[] range = description.split("-");
+			long from = Long.parseLong(range[0]), to = Long.parseLong(range[1]);
+			long[] seeds = new long[(int) (to - from + 1)];
+			for (int i=0; i<seeds.length; i++)
+				seeds[i] = from + i;
+			return seeds;
+		}
+		String[] values = description.split(",");
+		long[] seeds = new long[values.length];
+		for (int i=0; i<values.length; i++)
+			seeds[i] = Long.parseLong(values[i]);
+		return seeds;
+	}
+
+
+
+	static class Result {
+		String instance;
+		String problem_class;
+		long seed;
+		double distance;
+		int vehicles;
+		double best_distance;
+		int best_vehicles;
+		double optimum_distance;
+		int optimum_vehicles;
+		long wall_time;
+		long cpu_time;
+		long moves;
+		int epochs;
+		VRPTWBudget.Reason stop_reason;
+
+		double gap(double reference) {
+			return (reference > 0) ? 100 * (distance - reference) / reference : Double.NaN;
+		}
+
+		double movesPerSecond() {
+			return (wall_time > 0) ? moves * 1e9 / wall_time : 0;
+		}
+	}
+
+	final int cores;
+	final int parallel;
+	long time_limit = -1;
+	double target_gap = Double.NaN;
+
+	public VRPTWSuiteRunner(int cores, int parallel) {
+		this.cores = cores;
+		this.parallel = parallel;
+	}
+
+	public void setTimeLimit(long milliseconds) {
+		time_limit = milliseconds;
+	}
+
+	public void setTargetGap(double percent) {
+		target_gap = percent;
+	}
+
+	public static List<String> instances(String problem_class) {
+		return VRPTWInstanceCatalog.getDefault().names(problem_class);
+	}
+
+	public static double capacity(String problem_class) {
+		for (int i=0; i<CLASSES.length; i++)
+			if (CLASSES[i].equals(problem_class))
+				return CAPACITIES[i];
+		return Double.NaN;
+	}
+
+
+	public List<Result> run(List<String> classes, long[] seeds) throws InterruptedException, ExecutionException {
+		VRPTWSolverEngine engine = new VRPTWSolverEngine(cores);
+		ExecutorService executor = Executors.newFixedThreadPool(parallel);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (String problem_class : classes) {
+				double capacity = capacity(problem_class);
+				List<String> names = instances(problem_class);
+				if (names.isEmpty())
+					throw new IllegalArgumentException("nessuna istanza per la classe " + problem_class);
+				for (String instance : names)
+					for (long seed : seeds)
+						futures.add(executor.submit(() -> solve(engine, problem_class, instance, capacity, seed)));
+			}
+
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : futures)
+				results.add(future.get());
+			return results;
+		} finally {
+			executor.shutdown();
+			engine.shutdown();
+		}
+	}
+
+	private Result solve(VRPTWSolverEngine engine, String problem_class, String instance, double capacity, long seed) throws InterruptedException {
+		VRPTWInstance data;
+		try {
+			data = VRPTWInstanceCache.load(instance);
+		} catch (IOException e) {
+			throw new UncheckedIOException("impossibile caricare l'istanza " + instance, e);
+		}
+		VRPTWProblem problem = (data.capacity > 0 || Double.isNaN(capacity)) ? new VRPTWProblem(data) : new VRPTWProblem(data, capacity);
+		VRPTWSolver solver = new VRPTWSolver(engine);
+		solver.setVerbose(false);
+		VRPTWBudget budget = new VRPTWBudget();
+		if (time_limit >= 0)
+			budget.setTimeLimit(time_limit, TimeUnit.MILLISECONDS);
+		budget.setTargetGap(target_gap);
+		VRPTWSolution solution = solver.resolve(problem, seed, budget);
+
+		Result result = new Result();
+		result.instance = instance;
+		result.problem_class = problem_class;
+		result.seed = seed;
+		result.distance = solution.getDistance();
+		result.vehicles = solution.getVehicles();
+		result.best_distance = problem.getCurrentBestDistance();
+		result.best_vehicles = problem.getCurrentBestVehicles();
+		result.optimum_distance = problem.getOptiumumDistance();
+		result.optimum_vehicles = problem.getOptimumVehicles();
+		result.wall_time = solver.getWallTime();
+		result.cpu_time = solver.getCpuTime();
+		result.moves = solver.getMoves();
+		result.epochs = solver.getEpochs();
+		result.stop_reason = solver.getStopReason();
+		System.err.println(String.format(Locale.ROOT, "%s seed=%d: %.2f km, %d mezzi, gap %.2f%%, %d ms", instance, seed, result.distance, result.vehicles, result.gap(result.best_distance), result.wall_time / 1000000));
+		return result;
+	}
+
+
+
+	static void writeCsv(List<Result> results, PrintWriter out) {
+		out.println("instance,class,seed,distance,vehicles,best_distance,best_vehicles,gap_best_pct,optimum_distance,optimum_vehicles,gap_optimum_pct,wall_ms,cpu_ms,moves,moves_per_s,epochs,stop_reason");
+		for (Result r : results)
+			out.println(String.format(Locale.ROOT, "%s,%s,%d,%.2f,%d,%.2f,%d,%.3f,%.2f,%d,%.3f,%d,%d,%d,%.0f,%d,%s",
+					r.instance, r.problem_class, r.seed, r.distance, r.vehicles,
+					r.best_distance, r.best_vehicles, r.gap(r.best_distance),
+					r.optimum_distance, r.optimum_vehicles, r.gap(r.optimum_distance),
+					r.wall_time / 1000000, r.cpu_time / 1000000, r.moves, r.movesPerSecond(), r.epochs, r.stop_reason));
+	}
+
+	static void writeJson(List<Result> results, PrintWriter out) {
+		out.println("[");
+		for (int i=0; i<results.size(); i++) {
+			Result r = results.get(i);
+			out.print(String.format(Locale.ROOT, "  {\"instance\": \"%s\", \"class\": \"%s\", \"seed\": %d, \"distance\": %.2f, \"vehicles\": %d, "
+					+ "\"best_distance\": %.2f, \"best_vehicles\": %d, \"gap_best_pct\": %s, "
+					+ "\"optimum_distance\": %.2f, \"optimum_vehicles\": %d, \"gap_optimum_pct\": %s, "
+					+ "\"wall_ms\": %d, \"cpu_ms\": %d, \"moves\": %d, \"moves_per_s\": %.0f, \"epochs\": %d, \"stop_reason\": \"%s\"}",
+					r.instance, r.problem_class, r.seed, r.distance, r.vehicles,
+					r.best_distance, r.best_vehicles, jsonNumber(r.gap(r.best_distance)),
+					r.optimum_distance, r.optimum_vehicles, jsonNumber(r.gap(r.optimum_distance)),
+					r.wall_time / 1000000, r.cpu_time / 1000000, r.moves, r.movesPerSecond(), r.epochs, r.stop_reason));
+			out.println(i < results.size()-1 ? "," : "");
+		}
+		out.println("]");
+	}
+
+	private static String jsonNumber(double value) {
+		return Double.isNaN(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+	}
+
+}
@@ -0,0 +1,44 @@
+package vrptw;
+
+import java.util.SplittableRandom;
+
+public enum VRPTWTopology {
+
+	RING,
+	BROADCAST,
+	RANDOM_PAIR,
+	HYPERCUBE;
+
+
+	public int targets(int id, int islands, int round, SplittableRandom random, int[] out) {
+		if (islands < 2)
+			return 0;
+
+		switch (this) {
+		case RING:
+			out[0] = (id + 1) % islands;
+			return 1;
+
+		case BROADCAST:
+			int n = 0;
+			for (int i=0; i<islands; i++)
+				if (i != id)
+					out[n++] = i;
+			return n;
+
+		case RANDOM_PAIR:
+			int other = random.nextInt(islands - 1);
+			out[0] = (other >= id) ? other + 1 : other;
+			return 1;
+
+		case HYPERCUBE:
+			int dimensions = 32 - Integer.numberOfLeadingZeros(islands - 1);
+			int partner = id ^ (1 << (round % dimensions));
+			if (partner >= islands)
+				return 0;
+			out[0] = partner;
+			return 1;
+		}
+		return 0;
+	}
+}
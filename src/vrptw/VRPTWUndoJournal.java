@@ -0,0 +1,105 @@
+package vrptw;
+
+import java.util.Arrays;
+
+public class VRPTWUndoJournal {
+
+	static final int INITIAL_LENGTH = 4;
+
+	boolean active;
+
+
+	VRPTWRoute[] _touched;
+	VRPTWRoute[] _snapshots;
+	int _touched_count;
+
+
+	VRPTWRoute[] _removed;
+	int[] _removed_idx;
+	int _removed_count;
+
+
+	VRPTWRoute[] _added;
+	int _added_count;
+
+	public VRPTWUndoJournal() {
+		_touched = new VRPTWRoute[INITIAL_LENGTH];
+		_snapshots = new VRPTWRoute[INITIAL_LENGTH];
+		_removed = new VRPTWRoute[INITIAL_LENGTH];
+		_removed_idx = new int[INITIAL_LENGTH];
+		_added = new VRPTWRoute[INITIAL_LENGTH];
+		active = false;
+	}
+
+	public void begin() {
+		clear();
+		active = true;
+	}
+
+	public void clear() {
+		for (int i=0; i<_touched_count; i++)
+			_touched[i] = null;
+		for (int i=0; i<_removed_count; i++)
+			_removed[i] = null;
+		for (int i=0; i<_added_count; i++)
+			_added[i] = null;
+		_touched_count = _removed_count = _added_count = 0;
+		active = false;
+	}
+
+
+	public void snapshot(VRPTWRoute route) {
+		for (int i=0; i<_touched_count; i++)
+			if (_touched[i] == route)
+				return;
+
+		if (_touched_count == _touched.length) {
+			_touched = Arrays.copyOf(_touched, _touched_count << 1);
+			_snapshots = Arrays.copyOf(_snapshots, _touched_count << 1);
+		}
+		if (_snapshots[_touched_count] == null)
+			_snapshots[_touched_count] = new VRPTWRoute(route);
+		else
+			_snapshots[_touched_count].copyFrom(route);
+		_touched[_touched_count++] = route;
+	}
+
+	public void routeRemoved(VRPTWRoute route, int idx) {
+		for (int i=0; i<_added_count; i++)
+			if (_added[i] == route) {
+				_added[i] = _added[--_added_count];
+				_added[_added_count] = null;
+				return;
+			}
+
+		if (_removed_count == _removed.length) {
+			_removed = Arrays.copyOf(_removed, _removed_count << 1);
+			_removed_idx = Arrays.copyOf(_removed_idx, _removed_count << 1);
+		}
+		_removed[_removed_count] = route;
+		_removed_idx[_removed_count++] = idx;
+	}
+
+	public void routeAdded(VRPTWRoute route) {
+		if (_added_count == _added.length)
+			_added = Arrays.copyOf(_added, _added_count << 1);
+		_added[_added_count++] = route;
+	}
+
+
+	public void rollback(VRPTWSolution solution) {
+		active = false;
+
+		for (int i=_added_count-1; i>=0; i--)
+			solution.detachRoute(solution.routes.indexOf(_added[i]));
+
+		for (int i=_removed_count-1; i>=0; i--)
+			solution.attachRoute(_removed_idx[i], _removed[i]);
+
+		for (int i=0; i<_touched_count; i++)
+			solution.restoreRoute(_touched[i], _snapshots[i]);
+
+		clear();
+	}
+
+}
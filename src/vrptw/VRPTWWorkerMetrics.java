@@ -0,0 +1,120 @@
+package vrptw;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+public class VRPTWWorkerMetrics implements VRPTWWorkerMetricsMBean {
+
+	static final int PUBLISH_INTERVAL = 1024;
+
+	static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+
+	final int _id;
+	volatile long moves;
+	volatile long accepted;
+	volatile double temperature;
+	volatile double cost;
+	volatile long clones;
+
+	volatile long epochs;
+	volatile long busy_nanos;
+	volatile long wait_nanos;
+	volatile long migration_nanos;
+	volatile long cpu_nanos;
+	volatile long allocated_bytes;
+
+	public VRPTWWorkerMetrics(int id) {
+		_id = id;
+	}
+
+
+	void publish(long moves, long accepted, double temperature, double cost, long clones) {
+		this.moves = moves;
+		this.accepted = accepted;
+		this.temperature = temperature;
+		this.cost = cost;
+		this.clones = clones;
+	}
+
+	void epochDone(long busy_nanos, long cpu_nanos, long allocated_bytes, long migration_nanos) {
+		this.busy_nanos += busy_nanos;
+		this.cpu_nanos += cpu_nanos;
+		this.allocated_bytes += allocated_bytes;
+		this.migration_nanos += migration_nanos;
+		epochs++;
+	}
+
+	void epochWait(long nanos) {
+		wait_nanos += nanos;
+	}
+
+
+	static long cpuTime() {
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+	}
+
+
+	static long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+			if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled())
+				return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	public int getID() {
+		return _id;
+	}
+
+	public long getMoves() {
+		return moves;
+	}
+
+	public double getMovesPerSecond() {
+		long busy = busy_nanos;
+		return (busy > 0) ? moves * 1e9 / busy : 0;
+	}
+
+	public long getAcceptedMoves() {
+		return accepted;
+	}
+
+	public double getAcceptanceRatio() {
+		long n = moves;
+		return (n > 0) ? (double) accepted / n : 0;
+	}
+
+	public double getTemperature() {
+		return temperature;
+	}
+
+	public double getCurrentCost() {
+		return cost;
+	}
+
+	public long getEpochs() {
+		return epochs;
+	}
+
+	public long getEpochWaitMillis() {
+		return wait_nanos / 1000000;
+	}
+
+	public long getMigrationMillis() {
+		return migration_nanos / 1000000;
+	}
+
+	public long getClones() {
+		return clones;
+	}
+
+	public long getAllocatedBytes() {
+		return allocated_bytes;
+	}
+
+	public long getCpuMillis() {
+		return cpu_nanos / 1000000;
+	}
+}
@@ -0,0 +1,30 @@
+package vrptw;
+
+public interface VRPTWWorkerMetricsMBean {
+
+	int getID();
+
+	long getMoves();
+
+	double getMovesPerSecond();
+
+	long getAcceptedMoves();
+
+	double getAcceptanceRatio();
+
+	double getTemperature();
+
+	double getCurrentCost();
+
+	long getEpochs();
+
+	long getEpochWaitMillis();
+
+	long getMigrationMillis();
+
+	long getClones();
+
+	long getAllocatedBytes();
+
+	long getCpuMillis();
+}